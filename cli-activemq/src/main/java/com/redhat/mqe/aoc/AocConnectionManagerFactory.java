@@ -21,6 +21,7 @@ package com.redhat.mqe.aoc;
 
 import com.redhat.mqe.lib.ClientOptions;
 import com.redhat.mqe.lib.ConnectionManagerFactory;
+import org.apache.activemq.ActiveMQSession;
 
 import javax.inject.Inject;
 
@@ -32,4 +33,9 @@ public class AocConnectionManagerFactory extends ConnectionManagerFactory {
     public AocConnectionManager make(ClientOptions clientOptions, String brokerUri) {
         return new AocConnectionManager(clientOptions, brokerUri);
     }
+
+    @Override
+    protected int getIndividualAcknowledgeMode() {
+        return ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE;
+    }
 }
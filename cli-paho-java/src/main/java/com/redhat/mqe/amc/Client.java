@@ -26,6 +26,7 @@ import joptsimple.OptionSpec;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
@@ -49,6 +50,7 @@ abstract class Client {
     OptionSpec<Integer> msgCount;
     OptionSpec<Void> help;
     OptionSpec<String> logMsgs;
+    OptionSpec<Integer> logMsgsSample;
     OptionSpec<Boolean> willFlag;
     OptionSpec<String> willMessage;
     OptionSpec<Integer> willQos;
@@ -58,6 +60,7 @@ abstract class Client {
     OptionSpec<String> password;
     OptionSpec<Integer> keepAlive;
     OptionSpec<Boolean> reconnect;
+    OptionSpec<Double> reportInterval;
 
     String cliDestination;
     String cliClientId;
@@ -67,6 +70,8 @@ abstract class Client {
     int cliTimeout;
     int cliMsgCount;
     String cliLogMsgs;
+    int cliLogMsgsSample;
+    private long loggedMessages;
     Boolean cliWillFlag;
     String cliWillMessage;
     int cliWillQos;
@@ -76,6 +81,7 @@ abstract class Client {
     String cliPassword;
     Integer cliKeepAlive;
     Boolean cliReconnect;
+    double cliReportInterval;
 
     final AmcMessageFormatter messageFormatter = new AmcMessageFormatter();
 
@@ -118,6 +124,8 @@ abstract class Client {
 
         logMsgs = parser.accepts("log-msgs", "print messages").withRequiredArg()
             .ofType(String.class).defaultsTo("none");
+        logMsgsSample = parser.accepts("log-msgs-sample", "print only every Nth message").withRequiredArg()
+            .ofType(Integer.class).defaultsTo(1);
 
         willFlag = parser.accepts("conn-will-flag", "will flag (true, false)").withRequiredArg().ofType(Boolean.class).defaultsTo(false);
 
@@ -138,6 +146,9 @@ abstract class Client {
 
         reconnect = parser.accepts("conn-reconnect", "automatic reconnect (true, false)").withRequiredArg().ofType(Boolean.class).defaultsTo(true);
 
+        reportInterval = parser.accepts("report-interval", "print throughput statistics every given number of seconds and a summary at exit (0 disables)")
+            .withRequiredArg().ofType(Double.class).defaultsTo(0.0);
+
         help = parser.accepts("help", "This help").forHelp();
 
         return parser;
@@ -158,6 +169,7 @@ abstract class Client {
             cliTimeout = optionSet.valueOf(timeout);
             cliMsgCount = optionSet.valueOf(msgCount);
             cliLogMsgs = optionSet.valueOf(logMsgs);
+            cliLogMsgsSample = optionSet.valueOf(logMsgsSample);
             cliWillFlag = optionSet.valueOf(willFlag);
             cliWillMessage = optionSet.valueOf(willMessage);
             cliWillQos = optionSet.valueOf(willQos);
@@ -167,6 +179,7 @@ abstract class Client {
             cliPassword = optionSet.valueOf(password);
             cliKeepAlive = optionSet.valueOf(keepAlive);
             cliReconnect = optionSet.valueOf(reconnect);
+            cliReportInterval = optionSet.valueOf(reportInterval);
         }
     }
 
@@ -181,10 +194,14 @@ abstract class Client {
     }
 
     void printMessage(String topic, MqttMessage message) {
+        if ("none".equals(cliLogMsgs)) {
+            return;
+        }
+        if (cliLogMsgsSample > 1 && loggedMessages++ % cliLogMsgsSample != 0) {
+            return;
+        }
         Map<String, Object> format;
         switch (cliLogMsgs) {
-            case "none":
-                return;
             case "body":
                 format = messageFormatter.formatMessageBody(message);
                 break;
@@ -238,6 +255,18 @@ abstract class Client {
         }
     }
 
+    static void closeClient(MqttAsyncClient client) throws MqttException {
+        if (client != null && client.isConnected()) {
+            try {
+                client.disconnect().waitForCompletion();
+                client.close();
+            } catch (MqttException e) {
+                client.close();
+                throw e;
+            }
+        }
+    }
+
     protected Logger setUpLogger(String name) {
         org.apache.logging.log4j.core.Logger log = (org.apache.logging.log4j.core.Logger) LogManager.getLogger(name);
         log.setLevel(Level.WARN);
@@ -19,16 +19,47 @@
 
 package com.redhat.mqe.amc;
 
+import com.redhat.mqe.lib.AckBatch;
+import com.redhat.mqe.lib.LatencyRecorder;
+import com.redhat.mqe.lib.LatencyStamp;
+import com.redhat.mqe.lib.SequenceStamp;
+import com.redhat.mqe.lib.SequenceTracker;
+import com.redhat.mqe.lib.ThroughputReporter;
 import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.paho.client.mqttv3.*;
 
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 
 public class Receiver extends Client implements MqttCallback {
     private final Logger log = setUpLogger("Receiver");
 
     private MqttClient receiver = null;
 
+    OptionSpec<Boolean> latencyStats;
+    OptionSpec<String> latencyLog;
+    OptionSpec<Boolean> latencyCorrectCo;
+    OptionSpec<Boolean> seqTrack;
+    OptionSpec<Integer> recvQueueSize;
+    OptionSpec<Integer> ackBatch;
+    OptionSpec<Long> ackInterval;
+    private BlockingQueue<ArrivedMessage> arrived;
+    private final AtomicLong arrivedDropped = new AtomicLong();
+    private volatile boolean stopping;
+    private int cliAckBatch;
+    private long cliAckInterval;
+    private LatencyRecorder latencyRecorder;
+    private SequenceTracker sequenceTracker;
+    private ThroughputReporter throughputReporter;
+
     public Receiver(String[] args) {
         super(args);
     }
@@ -36,33 +67,91 @@ public class Receiver extends Client implements MqttCallback {
     @Override
     OptionParser populateOptionParser(OptionParser parser) {
         super.populateOptionParser(parser);
+        latencyStats = parser.accepts("latency-stats", "report end-to-end latency percentiles of messages stamped by sender (true, false)")
+            .withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+        latencyLog = parser.accepts("latency-log", "write end-to-end latency as HdrHistogram log into given file (implies latency-stats)")
+            .withRequiredArg().ofType(String.class);
+        latencyCorrectCo = parser.accepts("latency-correct-co", "measure latency from intended send time of rate limited sender (true, false)")
+            .withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+        seqTrack = parser.accepts("seq-track", "report lost, duplicate and out of order messages stamped by sender with seq-stamp (true, false)")
+            .withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+        recvQueueSize = parser.accepts("recv-queue-size", "how many arrived messages may wait for processing, messages arriving to a full queue are dropped unacknowledged")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(10000);
+        ackBatch = parser.accepts("ack-batch", "acknowledge QoS 1 and 2 messages after this many messages (0 for no limit)")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(1);
+        ackInterval = parser.accepts("ack-interval", "acknowledge when the oldest unacknowledged message waited this many milliseconds (0 for no limit)")
+            .withRequiredArg().ofType(Long.class).defaultsTo(0L);
         return parser;
     }
 
+    @Override
+    void setOptionValues(OptionSet optionSet) {
+        super.setOptionValues(optionSet);
+        if (optionSet.valueOf(latencyStats) || optionSet.has(latencyLog)) {
+            latencyRecorder = new LatencyRecorder(optionSet.valueOf(latencyCorrectCo), optionSet.valueOf(latencyLog));
+        }
+        if (optionSet.valueOf(seqTrack)) {
+            sequenceTracker = new SequenceTracker();
+        }
+        arrived = new ArrayBlockingQueue<>(Math.max(1, optionSet.valueOf(recvQueueSize)));
+        cliAckBatch = optionSet.valueOf(ackBatch);
+        cliAckInterval = optionSet.valueOf(ackInterval);
+    }
+
     @Override
     void closeClient() throws MqttException {
         closeClient(receiver);
     }
 
+    /**
+     * Receive --count messages (0 for no limit), or until no message arrives for --timeout seconds.
+     * Messages are processed and acknowledged on this thread, the client callback thread only queues them.
+     * Unacknowledged QoS 1 and 2 messages hold the in-flight window of the broker, which limits how many
+     * messages are queued.
+     */
     @Override
     public void startClient() throws MqttException {
-        cliTimeout = cliTimeout * 1000;
+        throughputReporter = ThroughputReporter.start(messageFormatter, cliReportInterval);
+        messageFormatter.startAsyncOutput();
         try {
             receiver = new MqttClient(cliBroker, cliClientId, null);
             log.info("Connecting to the broker " + cliBroker);
 
             MqttConnectOptions connectOptions = new MqttConnectOptions();
+            receiver.setManualAcks(true);
             receiver.connect(setConnectionOptions(connectOptions));
 
             receiver.setCallback(this);
             receiver.subscribe(cliDestination);
             log.info("Subscribed to " + cliDestination);
-            // wait for messages to arrive for some time
-            long endTime = System.currentTimeMillis() + cliTimeout;
-            while (System.currentTimeMillis() < endTime) {
-                Thread.sleep(200);
+
+            AckBatch<MqttMessage> unacknowledged = new AckBatch<>(cliAckBatch, cliAckInterval);
+            int received = 0;
+            while (cliMsgCount == 0 || received < cliMsgCount) {
+                ArrivedMessage message = arrived.poll(cliTimeout, TimeUnit.SECONDS);
+                if (message == null) {
+                    break;
+                }
+                processMessage(message.topic, message.message);
+                acknowledge(unacknowledged.add(message.message));
+                received++;
             }
+            // messages arriving from now on are dropped, unsubscribe must not wait behind a full queue
+            stopping = true;
+            arrived.clear();
+            acknowledge(unacknowledged.drain());
             receiver.unsubscribe(cliDestination);
+
+            Hashtable<String, Object> statistics = new Hashtable<>();
+            statistics.put("received", received);
+            statistics.put("recv-queue-dropped", arrivedDropped.get());
+            messageFormatter.printStatistics(statistics);
+            if (sequenceTracker != null) {
+                messageFormatter.printStatistics(sequenceTracker.toStatistics());
+            }
+            if (latencyRecorder != null) {
+                latencyRecorder.report(messageFormatter);
+            }
         } catch (MqttException e) {
             log.error("Error while subscribing!  " + e.getMessage());
             throw e;
@@ -73,6 +162,21 @@ public class Receiver extends Client implements MqttCallback {
             System.exit(1);
         } finally {
             closeClient();
+            if (throughputReporter != null) {
+                throughputReporter.close();
+            }
+            messageFormatter.stopAsyncOutput();
+        }
+    }
+
+    /**
+     * Acknowledge QoS 1 and 2 messages, oldest first; QoS 0 messages are not acknowledged in MQTT.
+     */
+    private void acknowledge(List<MqttMessage> messages) throws MqttException {
+        for (MqttMessage message : messages) {
+            if (message.getQos() > 0) {
+                receiver.messageArrivedComplete(message.getId(), message.getQos());
+            }
         }
     }
 
@@ -81,11 +185,60 @@ public class Receiver extends Client implements MqttCallback {
         cause.printStackTrace();
     }
 
+    /**
+     * Queue the message for the receiving thread. Never blocks, the client callback thread also reads
+     * the acknowledgements of unsubscribe and disconnect. A message which does not fit into the queue is
+     * dropped and counted, QoS 1 and 2 messages stay unacknowledged. Messages arriving after the receiver
+     * has finished are dropped too.
+     */
     public void messageArrived(String topic, MqttMessage message) {
+        if (stopping) {
+            return;
+        }
+        if (!arrived.offer(new ArrivedMessage(topic, message))) {
+            arrivedDropped.incrementAndGet();
+        }
+    }
+
+    private void processMessage(String topic, MqttMessage message) {
+        if (throughputReporter != null) {
+            throughputReporter.recordMessage(message.getPayload().length);
+        }
+        byte[] payload = message.getPayload();
+        long[] stamp = LatencyStamp.readPayloadStamp(payload);
+        if (latencyRecorder != null) {
+            latencyRecorder.record(stamp == null ? null : stamp[1], (stamp == null || stamp[2] == 0) ? null : stamp[2]);
+        }
+        if (stamp != null) {
+            payload = LatencyStamp.stripPayloadStamp(payload);
+        }
+        SequenceStamp sequence = SequenceStamp.readPayloadStamp(payload);
+        if (sequenceTracker != null) {
+            sequenceTracker.record(sequence == null ? null : sequence.getProducer(), sequence == null ? null : sequence.getSequence());
+        }
+        if (sequence != null) {
+            payload = SequenceStamp.stripPayloadStamp(payload);
+        }
+        if (stamp != null || sequence != null) {
+            MqttMessage unstamped = new MqttMessage(payload);
+            unstamped.setQos(message.getQos());
+            unstamped.setRetained(message.isRetained());
+            message = unstamped;
+        }
         printMessage(topic, message);
     }
 
     public void deliveryComplete(IMqttDeliveryToken token) {
         log.info("Delivery of message OK. " + token.toString());
     }
+
+    private static class ArrivedMessage {
+        final String topic;
+        final MqttMessage message;
+
+        ArrivedMessage(String topic, MqttMessage message) {
+            this.topic = topic;
+            this.message = message;
+        }
+    }
 }
@@ -19,10 +19,17 @@
 
 package com.redhat.mqe.amc;
 
+import com.redhat.mqe.lib.LatencyStamp;
+import com.redhat.mqe.lib.LatencyStatistics;
+import com.redhat.mqe.lib.RateLimiter;
+import com.redhat.mqe.lib.SequenceStamp;
+import com.redhat.mqe.lib.ThroughputReporter;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
-import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
@@ -30,6 +37,11 @@ import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
 import org.apache.logging.log4j.Logger;
 
+import java.util.Hashtable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 /**
  * Sender client to send messages to given topic.
@@ -38,10 +50,20 @@ import org.apache.logging.log4j.Logger;
  */
 public class Sender extends Client {
     OptionSpec<String> content;
+    OptionSpec<Double> rate;
+    OptionSpec<Integer> rateBurst;
+    OptionSpec<Boolean> latencyStamp;
+    OptionSpec<Boolean> seqStamp;
+    OptionSpec<Integer> maxInflight;
+    double cliRate;
+    int cliRateBurst;
+    boolean cliLatencyStamp;
+    boolean cliSeqStamp;
+    int cliMaxInflight;
     final MemoryPersistence persistence = new MemoryPersistence();
     private final Logger log = setUpLogger("Sender");
 
-    private MqttClient sender = null;
+    private MqttAsyncClient sender = null;
 
     public Sender(String[] args) {
         super(args);
@@ -52,6 +74,16 @@ public class Sender extends Client {
         super.populateOptionParser(parser);
         content = parser.accepts("msg-content", "message content").withRequiredArg()
             .ofType(String.class).defaultsTo("");
+        rate = parser.accepts("rate", "pace publishing to given messages per second (0 disables)").withRequiredArg()
+            .ofType(Double.class).defaultsTo(0.0);
+        rateBurst = parser.accepts("rate-burst", "how many messages may be published back-to-back to catch up with the rate").withRequiredArg()
+            .ofType(Integer.class).defaultsTo(1);
+        latencyStamp = parser.accepts("latency-stamp", "prepend send time to message payload for end-to-end latency measurement by receiver (true, false)")
+            .withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+        seqStamp = parser.accepts("seq-stamp", "prepend producer id and sequence number to message payload for loss and duplicate detection by receiver (true, false)")
+            .withRequiredArg().ofType(Boolean.class).defaultsTo(false);
+        maxInflight = parser.accepts("max-inflight", "how many QoS 1 and 2 publishes may await acknowledgement at the same time").withRequiredArg()
+            .ofType(Integer.class).defaultsTo(10);
         return parser;
     }
 
@@ -59,26 +91,79 @@ public class Sender extends Client {
     void setOptionValues(OptionSet optionSet) {
         super.setOptionValues(optionSet);
         cliContent = optionSet.valueOf(content);
+        cliRate = optionSet.valueOf(rate);
+        cliRateBurst = optionSet.valueOf(rateBurst);
+        cliLatencyStamp = optionSet.valueOf(latencyStamp);
+        cliSeqStamp = optionSet.valueOf(seqStamp);
+        cliMaxInflight = optionSet.valueOf(maxInflight);
+        if (cliMaxInflight < 1) {
+            System.err.println("max-inflight must be at least 1, got " + cliMaxInflight);
+            System.exit(2);
+        }
     }
     /**
-     * Send a message to the topic
+     * Send messages to the topic. Publishes are pipelined, at most --max-inflight of them await completion
+     * (PUBACK for QoS 1, PUBCOMP for QoS 2, written out for QoS 0) at the same time.
      */
     @Override
     public void startClient() throws MqttException {
+        ThroughputReporter reporter = ThroughputReporter.start(messageFormatter, cliReportInterval);
+        messageFormatter.startAsyncOutput();
         try {
-            sender = new MqttClient(cliBroker, cliClientId, persistence);
+            sender = new MqttAsyncClient(cliBroker, cliClientId, persistence);
             log.info("Connecting to broker: " + cliBroker);
 
-            MqttConnectOptions connectOptions = new MqttConnectOptions();
-            sender.connect(setConnectionOptions(connectOptions));
+            MqttConnectOptions connectOptions = setConnectionOptions(new MqttConnectOptions());
+            connectOptions.setMaxInflight(cliMaxInflight);
+            sender.connect(connectOptions).waitForCompletion();
 
-            MqttMessage message = new MqttMessage(cliContent.getBytes());
-            message.setQos(cliQos);
+            final Semaphore inflight = new Semaphore(cliMaxInflight);
+            final LatencyStatistics ackLatency = new LatencyStatistics();
+            final AtomicInteger failed = new AtomicInteger();
+            RateLimiter rateLimiter = RateLimiter.create(cliRate, cliRateBurst, cliMsgCount, 0);
+            String producerId = cliSeqStamp ? SequenceStamp.newProducerId() : null;
+            long startNanos = System.nanoTime();
             for (int i = 0; i < cliMsgCount; i++) {
-                sender.publish(cliDestination, message);
+                if (rateLimiter != null) {
+                    rateLimiter.await(i + 1);
+                }
+                byte[] payload = cliContent.getBytes();
+                // MQTT 3 has no message properties, so the stamps go into the payload
+                if (producerId != null) {
+                    payload = SequenceStamp.stampPayload(payload, producerId, i);
+                }
+                if (cliLatencyStamp) {
+                    long intendedNanos = (rateLimiter != null) ? LatencyStamp.toEpochNanos(rateLimiter.intendedNanos(i + 1)) : 0;
+                    payload = LatencyStamp.stampPayload(payload, i, LatencyStamp.epochNanos(), intendedNanos);
+                }
+                MqttMessage message = new MqttMessage(payload);
+                message.setQos(cliQos);
+                // the client owns the message once it is published
                 printMessage(cliDestination, message);
+
+                inflight.acquire();
+                sender.publish(cliDestination, message, null, new PublishListener(inflight, ackLatency, failed, reporter, payload.length));
+            }
+            if (!inflight.tryAcquire(cliMaxInflight, cliTimeout, TimeUnit.SECONDS)) {
+                log.error("Publishes not completed within timeout: " + (cliMaxInflight - inflight.availablePermits()));
+            }
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+            if (rateLimiter != null) {
+                messageFormatter.printStatistics(rateLimiter.toStatistics());
             }
+            Hashtable<String, Object> statistics = new Hashtable<>();
+            statistics.put("qos", cliQos);
+            statistics.put("max-inflight", cliMaxInflight);
+            statistics.put("published", ackLatency.getCount());
+            statistics.put("failed", failed.get());
+            statistics.put("publish-msgs-per-s", (seconds == 0) ? 0.0 : ackLatency.getCount() / seconds);
+            statistics.put("ack-latency", ackLatency.toStatistics());
+            messageFormatter.printStatistics(statistics);
         } catch (MqttException me) {
+            if (reporter != null) {
+                reporter.recordError();
+            }
             log.error("reason " + me.getReasonCode());
             log.error("msg " + me.getMessage());
             log.error("loc " + me.getLocalizedMessage());
@@ -91,6 +176,10 @@ public class Sender extends Client {
         } finally {
             closeClient();
             log.info("Disconnected");
+            if (reporter != null) {
+                reporter.close();
+            }
+            messageFormatter.stopAsyncOutput();
         }
     }
 
@@ -98,4 +187,43 @@ public class Sender extends Client {
     void closeClient() throws MqttException {
         closeClient(sender);
     }
+
+    /**
+     * Records the ack latency of a publish and frees its place in the in-flight window.
+     */
+    private class PublishListener implements IMqttActionListener {
+        private final Semaphore inflight;
+        private final LatencyStatistics ackLatency;
+        private final AtomicInteger failed;
+        private final ThroughputReporter reporter;
+        private final int size;
+        private final long publishNanos = System.nanoTime();
+
+        PublishListener(Semaphore inflight, LatencyStatistics ackLatency, AtomicInteger failed, ThroughputReporter reporter, int size) {
+            this.inflight = inflight;
+            this.ackLatency = ackLatency;
+            this.failed = failed;
+            this.reporter = reporter;
+            this.size = size;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            ackLatency.recordNanos(System.nanoTime() - publishNanos);
+            if (reporter != null) {
+                reporter.recordMessage(size);
+            }
+            inflight.release();
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            failed.incrementAndGet();
+            if (reporter != null) {
+                reporter.recordError();
+            }
+            log.error("Publish failed: " + exception);
+            inflight.release();
+        }
+    }
 }
@@ -19,13 +19,26 @@
 
 package com.redhat.mqe;
 
+import com.redhat.mqe.lib.ConnectionSoak;
+import com.redhat.mqe.lib.LatencyStatistics;
+import com.redhat.mqe.lib.RateLimiter;
 import org.apache.qpid.protonj2.client.Client;
 import org.apache.qpid.protonj2.client.Connection;
 import org.apache.qpid.protonj2.client.ConnectionOptions;
+import org.apache.qpid.protonj2.client.Session;
 import picocli.CommandLine;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @CommandLine.Command(
     name = "connector",
@@ -37,12 +50,30 @@ class CliProtonJ2Connector extends CliProtonJ2SenderReceiverConnector implements
     @CommandLine.Option(names = {"-b", "--broker"}, description = "")
     private String broker = "";
 
-    @CommandLine.Option(names = {"-a", "--address"}, description = "")
+    @CommandLine.Option(names = {"-a", "--address"}, description = "if given, every connection gets a session, a sender and a receiver for this address, whatever --obj-ctrl says")
     private String address = "";
 
     @CommandLine.Option(names = {"--count"}, description = "")
     private int count = 1;
 
+    @CommandLine.Option(names = {"--obj-ctrl"}, description = "objects to create on every connection (C/E/S/R stands for Connection, sEssion, Sender, Receiver)")
+    private String objCtrl;
+
+    @CommandLine.Option(names = {"--connect-parallelism"}, description = "how many connections are opened at the same time")
+    private int connectParallelism = 1;
+
+    @CommandLine.Option(names = {"--connect-rate"}, description = "open at most this many connections per second (0 for no limit)")
+    private double connectRate = 0;
+
+    @CommandLine.Option(names = {"--duration"}, description = "hold --count connections for this many seconds, reporting dropped connections and client heap and threads per connection (soak)")
+    private double duration = 0;
+
+    private final List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger connectionsOpened = new AtomicInteger();
+    private final LatencyStatistics connectLatency = new LatencyStatistics();
+    private RateLimiter connectRamp;
+    private int connectRampIteration = 0;
+
     @Override
     public Integer call() throws Exception {
         configureLogging();
@@ -56,15 +87,104 @@ class CliProtonJ2Connector extends CliProtonJ2SenderReceiverConnector implements
         int serverPort = url.getPort();
         serverPort = (serverPort == -1) ? 5672 : serverPort;
 
+        final ProtonJ2MessageFormatter messageFormatter = new ProtonJ2MessageFormatter();
+        final ConnectionSoak soak = (duration > 0) ? new ConnectionSoak() : null;
+        final ConnectionOptions options = getConnectionOptions();
+        if (soak != null) {
+            options.disconnectedHandler((connection, event) -> soak.connectionDropped(connection));
+            options.interruptedHandler((connection, event) -> soak.connectionInterrupted());
+            options.reconnectedHandler((connection, event) -> soak.connectionReconnected());
+        }
+
+        // same precedence as the JMS ConnectorClient: an address always gets all objects
+        String objects = !address.isEmpty() ? "CESR" : ((objCtrl != null) ? objCtrl.toUpperCase() : "C");
+        int parallelism = Math.max(1, Math.min(count, connectParallelism));
+        connectRamp = RateLimiter.create(connectRate, 1, count, 0);
+
+        // one client for all connections; the library still gives every connection its own IO thread
         final Client client = Client.create();
+        openConnections(client, serverHost, serverPort, options, objects, parallelism);
 
-        final ConnectionOptions options = getConnectionOptions();
+        if (soak != null) {
+            soak.opened(connectionsOpened.get());
+            soak.hold(duration);
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        client.close();
 
-        try (Connection connection = client.connect(serverHost, serverPort, options)) {
+        int opened = connectionsOpened.get();
+        if (parallelism > 1 || connectRamp != null) {
+            Hashtable<String, Object> connectStatistics = connectLatency.toStatistics();
+            connectStatistics.put("parallelism", parallelism);
+            connectStatistics.put("connect-rate", connectRate);
+            messageFormatter.printConnectorStatistics(opened, count - opened, count, connectStatistics);
+        } else {
+            messageFormatter.printConnectorStatistics(opened, count - opened, count);
+        }
+        if (soak != null) {
+            messageFormatter.printStatistics(soak.toStatistics());
         }
 
-        client.close();
+        int dropped = (soak == null) ? 0 : soak.getDropped();
+        return (opened < count || dropped > 0) ? 1 : 0;
+    }
 
-        return 0;
+    /**
+     * Open --count connections, at most parallelism of them at the same time.
+     */
+    private void openConnections(Client client, String serverHost, int serverPort, ConnectionOptions options,
+                                 String objects, int parallelism) throws InterruptedException {
+        if (parallelism == 1) {
+            for (int i = 0; i < count; i++) {
+                openConnection(client, serverHost, serverPort, options, objects);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int i = 0; i < count; i++) {
+                executor.execute(() -> openConnection(client, serverHost, serverPort, options, objects));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Open a connection with the objects selected by --obj-ctrl, wait until the peer opened all of them
+     * and record how long that took.
+     */
+    private void openConnection(Client client, String serverHost, int serverPort, ConnectionOptions options, String objects) {
+        if (connectRamp != null) {
+            synchronized (connectRamp) {
+                connectRamp.await(++connectRampIteration);
+            }
+        }
+        long startNanos = System.nanoTime();
+        try {
+            Connection connection = client.connect(serverHost, serverPort, options);
+            connections.add(connection);
+            connection.openFuture().get();
+            if (objects.contains("E")) {
+                Session session = connection.openSession();
+                session.openFuture().get();
+                if (objects.contains("S")) {
+                    session.openSender(address).openFuture().get();
+                }
+                if (objects.contains("R")) {
+                    session.openReceiver(address).openFuture().get();
+                }
+            }
+            connectionsOpened.incrementAndGet();
+            connectLatency.recordNanos(System.nanoTime() - startNanos);
+        } catch (ExecutionException e) {
+            System.err.println("Failed to open a connection: " + e.getCause().getMessage());
+        } catch (Exception e) {
+            System.err.println("Failed to open a connection: " + e.getMessage());
+        }
     }
 }
@@ -19,12 +19,21 @@
 
 package com.redhat.mqe;
 
-import com.redhat.mqe.lib.Utils;
+import com.redhat.mqe.lib.AckBatch;
+import com.redhat.mqe.lib.LatencyRecorder;
+import com.redhat.mqe.lib.LatencyStamp;
+import com.redhat.mqe.lib.RateLimiter;
+import com.redhat.mqe.lib.ReplySenderCache;
+import com.redhat.mqe.lib.SegmentedContentStore;
+import com.redhat.mqe.lib.SequenceStamp;
+import com.redhat.mqe.lib.SequenceTracker;
+import com.redhat.mqe.lib.ThroughputReporter;
 import org.apache.qpid.protonj2.client.Client;
 import org.apache.qpid.protonj2.client.ClientOptions;
 import org.apache.qpid.protonj2.client.Connection;
 import org.apache.qpid.protonj2.client.ConnectionOptions;
 import org.apache.qpid.protonj2.client.Delivery;
+import org.apache.qpid.protonj2.client.DeliveryState;
 import org.apache.qpid.protonj2.client.DistributionMode;
 import org.apache.qpid.protonj2.client.DurabilityMode;
 import org.apache.qpid.protonj2.client.Message;
@@ -32,18 +41,31 @@ import org.apache.qpid.protonj2.client.Receiver;
 import org.apache.qpid.protonj2.client.ReceiverOptions;
 import org.apache.qpid.protonj2.client.Sender;
 import org.apache.qpid.protonj2.client.Session;
+import org.apache.qpid.protonj2.client.SourceOptions;
+import org.apache.qpid.protonj2.client.StreamDelivery;
+import org.apache.qpid.protonj2.client.StreamReceiver;
+import org.apache.qpid.protonj2.client.StreamReceiverOptions;
+import org.apache.qpid.protonj2.client.Tracker;
 import org.apache.qpid.protonj2.client.exceptions.ClientException;
+import org.apache.qpid.protonj2.client.exceptions.ClientUnsupportedOperationException;
 import org.apache.qpid.protonj2.types.DescribedType;
 import org.apache.qpid.protonj2.types.Symbol;
 import org.apache.qpid.protonj2.types.UnknownDescribedType;
 import picocli.CommandLine;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
@@ -89,15 +111,55 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
     @CommandLine.Option(names = {"--process-reply-to"})
     private boolean processReplyTo = false;
 
+    @CommandLine.Option(names = {"--reply-cache-size"}, description = "number of reply-to senders kept open for --process-reply-to (0 closes them after every reply)")
+    private int replyCacheSize = 16;
+
+    @CommandLine.Option(names = {"--reply-cache-idle"}, description = "close cached reply-to senders not used for this many seconds (0 never)")
+    private double replyCacheIdle = 60;
+
+    @CommandLine.Option(names = {"--reply-anonymous"}, description = "send all replies with a single anonymous relay sender, if the broker supports it")
+    private boolean replyAnonymous = false;
+
+    @CommandLine.Option(names = {"--reply-max-in-flight"}, description = "how many replies may await settlement at the same time, the oldest is waited for when the window is full (0 does not track replies)")
+    private int replyMaxInFlight = 0;
+
+    private final ArrayDeque<Tracker> replyTrackers = new ArrayDeque<>();
+    private long repliesRejected = 0;
+    private long repliesFailed = 0;
+
     @CommandLine.Option(names = {"--duration"})
     private Float duration = 0.0f;
 
+    @CommandLine.Option(names = {"--rate"}, description = "pace receiving to given messages per second, overrides --duration")
+    private double rate = 0;
+
+    @CommandLine.Option(names = {"--rate-burst"}, description = "how many messages may be received back-to-back to catch up with --rate")
+    private int rateBurst = 1;
+
+    @CommandLine.Option(names = {"--latency-stats"}, description = "report end-to-end latency percentiles of messages stamped by sender")
+    private boolean latencyStats = false;
+
+    @CommandLine.Option(names = {"--latency-log"}, description = "write end-to-end latency as HdrHistogram log into given file (implies --latency-stats)")
+    private String latencyLog;
+
+    @CommandLine.Option(names = {"--latency-correct-co"}, description = "measure latency from intended send time of rate limited sender (corrects coordinated omission)")
+    private boolean latencyCorrectCo = false;
+
+    @CommandLine.Option(names = {"--seq-track"}, description = "report lost, duplicate and out of order messages stamped by sender with --seq-stamp")
+    private boolean seqTrack = false;
+
     @CommandLine.Option(names = {"--duration-mode"})
     private DurationModeReceiver durationMode = DurationModeReceiver.afterReceive;
 
     @CommandLine.Option(names = {"--ssn-ack-mode"})
     private SsnAckMode ssnAckMode;
 
+    @CommandLine.Option(names = {"--ack-batch"}, description = "with client ack mode, accept after this many messages (0 for no limit)")
+    private int ackBatch = 1;
+
+    @CommandLine.Option(names = {"--ack-interval"}, description = "with client ack mode, accept when the oldest unaccepted message waited this many milliseconds (0 for no limit)")
+    private long ackInterval = 0;
+
     @CommandLine.Option(names = {"--tx-size"})
     private Integer txSize;
 
@@ -110,6 +172,20 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
     @CommandLine.Option(names = {"--msg-content-to-file"})
     private String msgContentToFile;
 
+    @CommandLine.Option(names = {"--msg-binary-content-to-file"}, description = "write binary message content to files with this prefix")
+    private String msgBinaryContentToFile;
+
+    @CommandLine.Option(names = {"--msg-content-stream"}, description = "receive message content as a stream and write it to file in chunks as it arrives")
+    private String msgContentStreamString = "false";
+
+    @CommandLine.Option(names = {"--msg-content-store"}, description = "how to write message content to file, 'files' (a file per message) or 'segments' (append to segment files with an index)")
+    private MsgContentStore msgContentStore = MsgContentStore.files;
+
+    @CommandLine.Option(names = {"--msg-content-segment-size"}, description = "size of a segment file in MiB for --msg-content-store segments")
+    private double msgContentSegmentSize = 256;
+
+    private SegmentedContentStore contentStore;
+
     @CommandLine.Option(names = {"--conn-prefetch"})
     private Integer connPrefetch;
 
@@ -128,8 +204,6 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
     public Integer call() throws Exception {
         configureLogging();
 
-        duration *= 1000;  // convert to milliseconds
-
         String prefix = "";
         if (!broker.startsWith("amqp://") && !broker.startsWith("amqps://")) {
             prefix = "amqp://";
@@ -177,25 +251,7 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
 
         ReceiverOptions receiverOptions = new ReceiverOptions();
         // is it target or source? target.
-        receiverOptions.sourceOptions().capabilities(destinationCapability);
-        // TODO: huh, did not know that this is configurable; and it was very hard to find in relation to durable receivers
-        if (durableSubscription) {
-            receiverOptions.sourceOptions().durabilityMode(DurabilityMode.UNSETTLED_STATE);
-            // proton cpp cli does also this
-//            receiverOptions.sourceOptions().expiryPolicy(ExpiryPolicy.NEVER);  // but that seems to happen automatically here
-        }
-
-        // Selectors are not part of core AMQP, Artemis supports `apache.org:selector-filter:string` extension
-        // https://www.amqp.org/specification/1.0/filters
-        if (selector != null && !selector.isEmpty()) { // other java clis ignore empty selector
-            DescribedType describedType = new UnknownDescribedType(Symbol.getSymbol("apache.org:selector-filter:string"), selector);
-            receiverOptions.sourceOptions().filters(Map.of("selector", describedType));
-        }
-
-        // todo: another usability, little hard to figure out this is analogue of jms to browse queues
-        if (stringToBool(recvBrowseString)) {
-            receiverOptions.sourceOptions().distributionMode(DistributionMode.COPY);
-        }
+        configureSource(receiverOptions.sourceOptions(), destinationCapability, durableSubscription);
 
         // In AMQP, it is one credit means one message, so this matches the semantics
         if (connPrefetch != null) {
@@ -223,8 +279,35 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
 
         boolean transacted = txSize != null || txAction != null || txEndloopAction != null;
 
+        if (stringToBool(msgContentStreamString)) {
+            if (transacted || durableSubscription || processReplyTo) {
+                System.err.println("--msg-content-stream does not support transactions, durable subscriptions and --process-reply-to");
+                return 2;
+            }
+            StreamReceiverOptions streamReceiverOptions = new StreamReceiverOptions();
+            configureSource(streamReceiverOptions.sourceOptions(), destinationCapability, false);
+            if (connPrefetch != null) {
+                streamReceiverOptions.creditWindow(connPrefetch);
+            }
+            if (ssnAckMode == SsnAckMode.client) {
+                streamReceiverOptions.autoAccept(false);
+            }
+            try (Connection connection = client.connect(serverHost, serverPort, options);
+                 StreamReceiver receiver = connection.openStreamReceiver(address, streamReceiverOptions)) {
+                performMessageStreaming(receiver);
+            }
+            client.close();
+            return 0;
+        }
+
+        if (msgContentToFile != null && msgContentStore == MsgContentStore.segments) {
+            contentStore = new SegmentedContentStore(msgContentToFile, (long) (msgContentSegmentSize * 1024 * 1024));
+        }
+
+        messageFormatter.startAsyncOutput();
         try (Connection connection = client.connect(serverHost, serverPort, options);
-             Session session = connection.openSession()) {
+             Session session = connection.openSession();
+             ThroughputReporter reporter = ThroughputReporter.start(messageFormatter, reportInterval)) {
             Receiver receiver;
             if (durableSubscription) {
                 receiver = session.openDurableReceiver(address, durableSubscriberName, receiverOptions);
@@ -243,11 +326,15 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
             }
 
             int i = 0;
-            double initialTimestamp = Utils.getTime();
+            final RateLimiter rateLimiter = RateLimiter.create(rate, rateBurst, count, duration);
+            final LatencyRecorder latencyRecorder = (latencyStats || latencyLog != null) ? new LatencyRecorder(latencyCorrectCo, latencyLog) : null;
+            final SequenceTracker sequenceTracker = seqTrack ? new SequenceTracker() : null;
+            final AckBatch<Delivery> unaccepted = new AckBatch<>(ackBatch, ackInterval);
+            final ReplySenderCache<String, Sender> replyCache = new ReplySenderCache<>(replyCacheSize, replyCacheIdle, this::closeReplySender);
             while (true) {
 
                 if (durationMode == DurationModeReceiver.beforeReceive) {
-                    Utils.sleepUntilNextIteration(initialTimestamp, count, duration, i + 1);
+                    pace(rateLimiter, i + 1);
                 }
 
                 final Delivery delivery;
@@ -256,23 +343,27 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
                 if (delivery == null) {
                     break;
                 }
+                countMessage(reporter, delivery.message());
+                if (sequenceTracker != null) {
+                    Message<Object> received = delivery.message();
+                    sequenceTracker.record((String) received.property(SequenceStamp.PRODUCER_PROPERTY), (Long) received.property(SequenceStamp.SEQUENCE_PROPERTY));
+                }
+                if (latencyRecorder != null) {
+                    Message<Object> received = delivery.message();
+                    latencyRecorder.record((Long) received.property(LatencyStamp.SEND_TIME_PROPERTY), (Long) received.property(LatencyStamp.INTENDED_TIME_PROPERTY));
+                }
 
                 if (durationMode == DurationModeReceiver.afterReceive) {
-                    Utils.sleepUntilNextIteration(initialTimestamp, count, duration, i + 1);
+                    pace(rateLimiter, i + 1);
                 }
 
                 if (processReplyTo && delivery.message().replyTo() != null) {
-                    String replyTo = delivery.message().replyTo();
-                    Message<Object> message = delivery.message();
-                    message.replyTo(null);
-                    try (Sender sender = connection.openSender(replyTo)) {
-                        sender.send(message);
-                    }
+                    sendReply(connection, replyCache, delivery.message());
                 }
 
                 // todo, is this what we mean?
                 if (ssnAckMode != null && ssnAckMode == SsnAckMode.client) {
-                    delivery.accept();
+                    accept(unaccepted.add(delivery));
                 }
 
                 outputReceivedMessage(i, delivery);
@@ -280,10 +371,15 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
 
                 if (txSize != null && txSize != 0) {
                     if (i % txSize == 0) {
+                        // accepted deliveries belong to the transaction being completed
+                        accept(unaccepted.drain());
                         if (txAction != null) {
                             switch (txAction) {
                                 case commit:
                                     session.commitTransaction();
+                                    if (reporter != null) {
+                                        reporter.recordCommit();
+                                    }
                                     break;
                                 case rollback:
                                     session.rollbackTransaction();
@@ -293,7 +389,7 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
                             session.beginTransaction();
 
                             if (durationMode == DurationModeReceiver.afterReceiveTxAction) {
-                                Utils.sleepUntilNextIteration(initialTimestamp, i, duration, i + 1);
+                                pace(rateLimiter, i + 1);
                             }
                         }
                     }
@@ -303,11 +399,17 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
                     break;
                 }
             }
+            accept(unaccepted.drain());
+            settleReplies(0);
+            replyCache.close();
 
             if (txEndloopAction != null) {
                 switch (txEndloopAction) {
                     case commit:
                         session.commitTransaction();
+                        if (reporter != null) {
+                            reporter.recordCommit();
+                        }
                         break;
                     case rollback:
                         session.rollbackTransaction();
@@ -317,11 +419,35 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
                 session.rollbackTransaction();
             }
 
+            if (rateLimiter != null && rate > 0) {
+                messageFormatter.printStatistics(rateLimiter.toStatistics());
+            }
+            if (processReplyTo) {
+                Hashtable<String, Object> replyStatistics = replyCache.toStatistics();
+                if (replyMaxInFlight > 0) {
+                    replyStatistics.put("reply-max-in-flight", replyMaxInFlight);
+                    replyStatistics.put("reply-rejected", repliesRejected);
+                    replyStatistics.put("reply-failed", repliesFailed);
+                }
+                messageFormatter.printStatistics(replyStatistics);
+            }
+            if (sequenceTracker != null) {
+                messageFormatter.printStatistics(sequenceTracker.toStatistics());
+            }
+            if (latencyRecorder != null) {
+                latencyRecorder.report(messageFormatter);
+            }
+
             if (durableSubscription) {
                 receiver.detach();
             } else {
                 receiver.close(); // TODO want to do autoclosable, need helper func, that's all
             }
+        } finally {
+            if (contentStore != null) {
+                contentStore.close();
+            }
+            messageFormatter.stopAsyncOutput();
         }
 
         client.close();
@@ -329,10 +455,170 @@ public class CliProtonJ2Receiver extends CliProtonJ2SenderReceiver implements Ca
         return 0;
     }
 
+    /**
+     * Set the source of a receiver link: the address capability, durability, selector and browsing.
+     */
+    private void configureSource(SourceOptions sourceOptions, String destinationCapability, boolean durableSubscription) {
+        sourceOptions.capabilities(destinationCapability);
+        // TODO: huh, did not know that this is configurable; and it was very hard to find in relation to durable receivers
+        if (durableSubscription) {
+            sourceOptions.durabilityMode(DurabilityMode.UNSETTLED_STATE);
+            // proton cpp cli does also this
+//            sourceOptions.expiryPolicy(ExpiryPolicy.NEVER);  // but that seems to happen automatically here
+        }
+
+        // Selectors are not part of core AMQP, Artemis supports `apache.org:selector-filter:string` extension
+        // https://www.amqp.org/specification/1.0/filters
+        if (selector != null && !selector.isEmpty()) { // other java clis ignore empty selector
+            DescribedType describedType = new UnknownDescribedType(Symbol.getSymbol("apache.org:selector-filter:string"), selector);
+            sourceOptions.filters(Map.of("selector", describedType));
+        }
+
+        // todo: another usability, little hard to figure out this is analogue of jms to browse queues
+        if (stringToBool(recvBrowseString)) {
+            sourceOptions.distributionMode(DistributionMode.COPY);
+        }
+    }
+
+    /**
+     * Send the message back to its reply-to address, with a sender from the cache if there is one.
+     * With anonymous replies, a single anonymous relay sender is cached for all addresses, unless
+     * the broker does not offer anonymous relay; then it falls back to a sender per address.
+     */
+    private void sendReply(Connection connection, ReplySenderCache<String, Sender> replyCache, Message<Object> message) throws ClientException {
+        long startNanos = System.nanoTime();
+        String replyTo = message.replyTo();
+        message.replyTo(null);
+        Sender sender = replyCache.get(replyAnonymous ? null : replyTo);
+        boolean created = sender == null;
+        if (created) {
+            sender = openReplySender(connection, replyTo);
+        }
+        if (replyAnonymous) {
+            message.to(replyTo);
+        }
+        Tracker tracker = sender.send(message);
+        if (created) {
+            replyCache.put(replyAnonymous ? null : replyTo, sender);
+        }
+        replyCache.recordReply(startNanos);
+        if (replyMaxInFlight > 0) {
+            replyTrackers.addLast(tracker);
+            settleReplies(replyMaxInFlight);
+        }
+    }
+
+    /**
+     * Take settled replies off the head of the window, then wait for the oldest ones until at most
+     * limit replies remain unsettled. Replies are not resent, outcomes other than accepted are counted.
+     */
+    private void settleReplies(int limit) {
+        while (!replyTrackers.isEmpty()) {
+            Tracker tracker = replyTrackers.peekFirst();
+            if (replyTrackers.size() <= limit && !tracker.settlementFuture().isDone()) {
+                break;
+            }
+            replyTrackers.removeFirst();
+            try {
+                tracker.awaitSettlement();
+                DeliveryState state = tracker.remoteState();
+                if (state == null || !state.isAccepted()) {
+                    repliesRejected++;
+                }
+            } catch (ClientException e) {
+                repliesFailed++;
+            }
+        }
+    }
+
+    /**
+     * Wait for outstanding replies before a sender leaves the cache, their outcomes would be lost with the link.
+     */
+    private void closeReplySender(Sender sender) {
+        settleReplies(0);
+        sender.close();
+    }
+
+    private Sender openReplySender(Connection connection, String replyTo) throws ClientException {
+        if (replyAnonymous) {
+            try {
+                return connection.openAnonymousSender();
+            } catch (ClientUnsupportedOperationException e) {
+                replyAnonymous = false;
+            }
+        }
+        return connection.openSender(replyTo);
+    }
+
+    /**
+     * Accept and settle a batch of deliveries. The client has no ranged disposition,
+     * the dispositions are written back to back without waiting for the peer in between.
+     */
+    private static void accept(List<Delivery> deliveries) throws ClientException {
+        for (Delivery delivery : deliveries) {
+            delivery.accept();
+        }
+    }
+
+    /**
+     * Receive messages with a stream receiver and write each body to --msg-binary-content-to-file (or
+     * --msg-content-to-file) in fixed-size chunks as they arrive, so that heap use does not depend on the message size.
+     */
+    private void performMessageStreaming(StreamReceiver receiver) throws IOException, ClientException {
+        final byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        final String file = (msgBinaryContentToFile != null) ? msgBinaryContentToFile : msgContentToFile;
+        final long startNanos = System.nanoTime();
+        long bytes = 0;
+        int i = 0;
+        messageFormatter.startAsyncOutput();
+        try (ThroughputReporter reporter = ThroughputReporter.start(messageFormatter, reportInterval)) {
+            while (count == 0 || i < count) {
+                StreamDelivery delivery = receiver.receive(timeout, TimeUnit.SECONDS);
+                if (delivery == null) {
+                    break;
+                }
+                long size = 0;
+                try (InputStream body = delivery.message().body();
+                     FileChannel channel = (file == null) ? null : FileChannel.open(Paths.get(file + "_" + i),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    int read;
+                    while (body != null && (read = body.read(chunk)) != -1) {
+                        if (channel != null) {
+                            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                            while (buffer.hasRemaining()) {
+                                channel.write(buffer);
+                            }
+                        }
+                        size += read;
+                    }
+                }
+                if (ssnAckMode == SsnAckMode.client) {
+                    delivery.accept();
+                }
+                if (reporter != null) {
+                    reporter.recordMessage(size);
+                }
+                bytes += size;
+                i++;
+            }
+        } finally {
+            messageFormatter.stopAsyncOutput();
+        }
+        printStreamStatistics(i, bytes, startNanos);
+    }
+
     private void outputReceivedMessage(int i, Delivery delivery) throws ClientException, IOException {
         Message<Object> message = delivery.message();
         int messageFormat = delivery.messageFormat();
-        if (msgContentToFile != null) {
+        if (contentStore != null) {
+            Object body = message.body();
+            byte[] content = (body instanceof byte[]) ? (byte[]) body : String.valueOf(body).getBytes(StandardCharsets.UTF_8);
+            contentStore.append(i, content);
+        } else if (msgBinaryContentToFile != null) {
+            Object body = message.body();
+            byte[] content = (body instanceof byte[]) ? (byte[]) body : String.valueOf(body).getBytes(StandardCharsets.UTF_8);
+            Files.write(Paths.get(msgBinaryContentToFile + "_" + i), content);
+        } else if (msgContentToFile != null) {
             // todo?
             Path file = Paths.get(msgContentToFile + "_" + i);
             Files.write(file, message.body().toString().getBytes(StandardCharsets.UTF_8));
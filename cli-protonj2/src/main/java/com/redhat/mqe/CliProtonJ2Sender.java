@@ -20,19 +20,36 @@
 package com.redhat.mqe;
 
 import com.redhat.mqe.lib.Content;
-import com.redhat.mqe.lib.Utils;
+import com.redhat.mqe.lib.LatencyStatistics;
+import com.redhat.mqe.lib.LatencyStamp;
+import com.redhat.mqe.lib.RateLimiter;
+import com.redhat.mqe.lib.SequenceStamp;
+import com.redhat.mqe.lib.ThroughputReporter;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.apache.qpid.protonj2.client.*;
+import org.apache.qpid.protonj2.buffer.ProtonBuffer;
+import org.apache.qpid.protonj2.buffer.netty.Netty4ProtonBufferAllocator;
 import org.apache.qpid.protonj2.client.exceptions.ClientException;
+import org.apache.qpid.protonj2.types.messaging.Data;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import picocli.CommandLine;
 
 import java.io.IOException;
 import java.net.URI;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -60,6 +77,21 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
     @CommandLine.Option(names = {"--duration"})
     private Float duration = 0.0f;
 
+    @CommandLine.Option(names = {"--rate"}, description = "pace sending to given messages per second, overrides --duration")
+    private double rate = 0;
+
+    @CommandLine.Option(names = {"--rate-burst"}, description = "how many messages may be sent back-to-back to catch up with --rate")
+    private int rateBurst = 1;
+
+    @CommandLine.Option(names = {"--latency-stamp"}, description = "stamp messages with send time for end-to-end latency measurement by receiver")
+    private boolean latencyStamp = false;
+
+    @CommandLine.Option(names = {"--seq-stamp"}, description = "stamp messages with producer id and sequence number for loss and duplicate detection by receiver")
+    private boolean seqStamp = false;
+
+    @CommandLine.Option(names = {"--max-in-flight"}, description = "how many sent messages may await settlement at the same time, 1 waits for each message before sending the next")
+    private int maxInFlight = 1;
+
     @CommandLine.Option(names = {"--msg-property"})  // picocli Map options works for this, sounds like
     private List<String> msgProperties = new ArrayList<>();
 
@@ -69,6 +101,12 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
     @CommandLine.Option(names = {"--msg-content-from-file"})
     private String msgContentFromFile;
 
+    @CommandLine.Option(names = {"--msg-content-stream"}, description = "stream --msg-content-from-file in chunks instead of loading it into memory")
+    private String msgContentStreamString = "false";
+
+    @CommandLine.Option(names = {"--msg-content-mmap"}, description = "map binary --msg-content-from-file into memory once and reference it from every message body, instead of copying it onto the heap")
+    private boolean msgContentMmap = false;
+
     @CommandLine.Option(names = {"--content-type"})
     private ContentType contentType = ContentType.STRING;
 
@@ -141,6 +179,10 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
     @CommandLine.Option(names = {"--duration-mode"})
     private DurationModeSender durationMode = DurationModeSender.afterSend;
 
+    private final LatencyStatistics settlementLatency = new LatencyStatistics();
+
+    private PreparedMessage preparedMessage;
+
     public CliProtonJ2Sender() {
         super();
     }
@@ -156,8 +198,6 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
     public Integer call() throws Exception {
         configureLogging();
 
-        duration *= 1000;  // convert to milliseconds
-
         String prefix = "";
         if (!broker.startsWith("amqp://") && !broker.startsWith("amqps://")) {
             prefix = "amqp://";
@@ -189,6 +229,21 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
 
         boolean transacted = txSize != null || txAction != null || txEndloopAction != null;
 
+        if (stringToBool(msgContentStreamString)) {
+            if (msgContentFromFile == null || transacted) {
+                System.err.println("--msg-content-stream needs --msg-content-from-file and does not support transactions");
+                return 2;
+            }
+            StreamSenderOptions streamSenderOptions = new StreamSenderOptions();
+            streamSenderOptions.targetOptions().capabilities(destinationCapability);
+            try (Connection connection = client.connect(serverHost, serverPort, options);
+                 StreamSender sender = connection.openStreamSender(address, streamSenderOptions)) {
+                performMessageStreaming(sender);
+            }
+            client.close();
+            return 0;
+        }
+
         // do simple and also complex (with session) loop, depending on if we have transactions
         if (transacted) {
             // TODO API, when I use session and when not? Add note to session that it is optional. and that it provides transactions?
@@ -220,39 +275,100 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
             session.beginTransaction();
         }
 
+        final RateLimiter rateLimiter = RateLimiter.create(rate, rateBurst, count, duration);
+        messageFormatter.startAsyncOutput();
+        try (ThroughputReporter reporter = ThroughputReporter.start(messageFormatter, reportInterval)) {
+            sendMessages(transacted, sender, session, rateLimiter, reporter);
+        } finally {
+            messageFormatter.stopAsyncOutput();
+        }
+
+        if (rateLimiter != null && rate > 0) {
+            messageFormatter.printStatistics(rateLimiter.toStatistics());
+        }
+        if (maxInFlight > 1) {
+            Hashtable<String, Object> statistics = settlementLatency.toStatistics();
+            statistics.put("max-in-flight", maxInFlight);
+            messageFormatter.printStatistics(statistics);
+        }
+    }
+
+    /**
+     * Send --count messages with the body read from --msg-content-from-file in fixed-size chunks,
+     * so that heap use does not depend on the file size.
+     */
+    private void performMessageStreaming(@NotNull StreamSender sender) throws IOException, ClientException {
+        final Path file = Paths.get(msgContentFromFile);
+        final ByteBuffer chunk = ByteBuffer.allocate(STREAM_CHUNK_SIZE);
+        final PreparedMessage prepared = prepareMessage();
+        final RateLimiter rateLimiter = RateLimiter.create(rate, rateBurst, count, duration);
+        final long startNanos = System.nanoTime();
+        long bytes = 0;
         int i = 0;
-        double initialTimestamp = Utils.getTime();
+        messageFormatter.startAsyncOutput();
+        try (ThroughputReporter reporter = ThroughputReporter.start(messageFormatter, reportInterval)) {
+            while (count == 0 || i < count) {
+                pace(rateLimiter, i + 1);
+                StreamSenderMessage message = sender.beginMessage();
+                applyHeaders(message, prepared);
+                long size = 0;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    // a known length goes out as a single data section; larger files as a data section per chunk
+                    OutputStreamOptions streamOptions = new OutputStreamOptions();
+                    if (channel.size() <= Integer.MAX_VALUE) {
+                        streamOptions.bodyLength((int) channel.size());
+                    }
+                    try (OutputStream body = message.body(streamOptions)) {
+                        while (channel.read(chunk) != -1) {
+                            body.write(chunk.array(), 0, chunk.position());
+                            size += chunk.position();
+                            chunk.clear();
+                        }
+                    }
+                }
+                DeliveryState state = message.tracker().awaitSettlement().remoteState();
+                if (reporter != null) {
+                    if (state == null || !state.isAccepted()) {
+                        reporter.recordError();
+                    }
+                    reporter.recordMessage(size);
+                }
+                bytes += size;
+                i++;
+            }
+        } finally {
+            messageFormatter.stopAsyncOutput();
+        }
+        printStreamStatistics(i, bytes, startNanos);
+    }
+
+    private void sendMessages(boolean transacted, @NotNull Sender sender, @Nullable Session session,
+                              @Nullable RateLimiter rateLimiter, @Nullable ThroughputReporter reporter) throws IOException, ClientException {
+        int i = 0;
+        final ArrayDeque<InFlightDelivery> inFlight = new ArrayDeque<>();
+        final int unsettledLimit = Math.max(1, maxInFlight) - 1;
+        final String producerId = seqStamp ? SequenceStamp.newProducerId() : null;
         while (true) {
 
             if (durationMode == DurationModeSender.beforeSend) {
-                Utils.sleepUntilNextIteration(initialTimestamp, count, duration, i + 1);
+                pace(rateLimiter, i + 1);
             }
 
             Message<?> message = createNewMessage();
-            // TODO what's timeout for in a sender?
-            Tracker tracker = sender.send(message);
-            tracker.awaitSettlement();
-            // NB: This is not a busy loop involving the network, because sooner or later the peer will drain credit,
-            //  if it intends to keep blocking. And sender.send() blocks upon running out of credit.
-            while (!tracker.remoteState().isAccepted()) {
-                // NB: Transacted session gives a special state that is not considered "accepted" even though it is e.g.
-                //  DeliveryState.ClientTransactional{
-                //   TransactionalState{txnId=ea51ffc4-4896-11ed-924a-d6bdd75e6e2e, outcome=Accepted{}}
-                //  Since we don't test reconnect with transactions (GAP! :shocked face:) let's bail out
-                if (tracker.remoteState().getType() == DeliveryState.Type.TRANSACTIONAL) {
-                    break;
-                }
-                // TODO: am I supposed to increment `delivery-count` of the message if I got rejected before?
-                //  as per http://docs.oasis-open.org/amqp/core/v1.0/os/amqp-core-messaging-v1.0-os.html#type-rejected
-                tracker = sender.send(message);  // resend the message
-                tracker.awaitSettlement();
+            if (producerId != null) {
+                message.property(SequenceStamp.PRODUCER_PROPERTY, producerId);
+                message.property(SequenceStamp.SEQUENCE_PROPERTY, (long) i);
             }
-
-            printMessage(message);
+            if (latencyStamp) {
+                stampMessage(message, rateLimiter, i);
+            }
+            // TODO what's timeout for in a sender?
+            inFlight.addLast(new InFlightDelivery(message, sender.send(message)));
+            settleDeliveries(sender, inFlight, unsettledLimit, reporter);
             i++; // TODO: looks like all have the sleeps wrong, then (the + 1 in the calls)
 
             if (durationMode == DurationModeSender.afterSend) {
-                Utils.sleepUntilNextIteration(initialTimestamp, count, duration, i + 1);
+                pace(rateLimiter, i + 1);
             }
 
             if (txSize != null && txSize != 0) {
@@ -260,9 +376,13 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
                     // Do transaction action
                     if (txAction != null) {
                         assert transacted && session != null;
+                        settleDeliveries(sender, inFlight, 0, reporter);
                         switch (txAction) {
                             case commit:
                                 session.commitTransaction();
+                                if (reporter != null) {
+                                    reporter.recordCommit();
+                                }
                                 break;
                             case rollback:
                                 session.rollbackTransaction();
@@ -272,7 +392,7 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
                         session.beginTransaction();
 
                         if (durationMode == DurationModeSender.afterSendTxAction) {
-                            Utils.sleepUntilNextIteration(initialTimestamp, count, duration, i + 1);
+                            pace(rateLimiter, i + 1);
                         }
                     }
                 }
@@ -281,11 +401,16 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
             if (i == count) break;
         }
 
+        settleDeliveries(sender, inFlight, 0, reporter);
+
         if (txEndloopAction != null) {
             assert transacted && session != null;
             switch (txEndloopAction) {
                 case commit:
                     session.commitTransaction();
+                    if (reporter != null) {
+                        reporter.recordCommit();
+                    }
                     break;
                 case rollback:
                     session.rollbackTransaction();
@@ -296,38 +421,161 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
         }
     }
 
+    /**
+     * Take settled deliveries off the head of the queue, then wait for the oldest ones until at most
+     * limit deliveries remain unsettled. Deliveries the peer did not accept are sent again.
+     */
+    private void settleDeliveries(@NotNull Sender sender, ArrayDeque<InFlightDelivery> inFlight, int limit,
+                                  @Nullable ThroughputReporter reporter) throws ClientException {
+        while (!inFlight.isEmpty()) {
+            InFlightDelivery delivery = inFlight.peekFirst();
+            if (inFlight.size() <= limit && !delivery.tracker.settlementFuture().isDone()) {
+                break;
+            }
+            delivery.tracker.awaitSettlement();
+            inFlight.removeFirst();
+            settlementLatency.recordNanos(System.nanoTime() - delivery.sendNanos);
+
+            // NB: Transacted session gives a special state that is not considered "accepted" even though it is e.g.
+            //  DeliveryState.ClientTransactional{
+            //   TransactionalState{txnId=ea51ffc4-4896-11ed-924a-d6bdd75e6e2e, outcome=Accepted{}}
+            //  Since we don't test reconnect with transactions (GAP! :shocked face:) let's not resend those
+            DeliveryState state = delivery.tracker.remoteState();
+            if (!state.isAccepted() && state.getType() != DeliveryState.Type.TRANSACTIONAL) {
+                // TODO: am I supposed to increment `delivery-count` of the message if I got rejected before?
+                //  as per http://docs.oasis-open.org/amqp/core/v1.0/os/amqp-core-messaging-v1.0-os.html#type-rejected
+                if (reporter != null) {
+                    reporter.recordError();
+                }
+                // NB: This is not a busy loop involving the network, because sooner or later the peer will drain credit,
+                //  if it intends to keep blocking. And sender.send() blocks upon running out of credit.
+                inFlight.addLast(new InFlightDelivery(delivery.message, sender.send(delivery.message)));  // resend the message
+                continue;
+            }
+
+            countMessage(reporter, delivery.message);
+            printMessage(delivery.message);
+        }
+    }
+
+    /**
+     * Sent message waiting for settlement, kept for resending.
+     */
+    private static class InFlightDelivery {
+        final Message<?> message;
+        final Tracker tracker;
+        final long sendNanos = System.nanoTime();
+
+        InFlightDelivery(Message<?> message, Tracker tracker) {
+            this.message = message;
+            this.tracker = tracker;
+        }
+    }
+
+    /**
+     * Set latency stamp properties, see {@link LatencyStamp}. Send time is taken last, just before the send.
+     */
+    private static void stampMessage(Message<?> message, @Nullable RateLimiter rateLimiter, int i) throws ClientException {
+        message.property(LatencyStamp.SEQUENCE_PROPERTY, (long) i);
+        if (rateLimiter != null) {
+            message.property(LatencyStamp.INTENDED_TIME_PROPERTY, LatencyStamp.toEpochNanos(rateLimiter.intendedNanos(i + 1)));
+        }
+        message.property(LatencyStamp.SEND_TIME_PROPERTY, LatencyStamp.epochNanos());
+    }
+
+    /**
+     * Build a message from the body and properties prepared on first use, so that file content and
+     * list, map and property items are read and parsed only once for the whole run.
+     */
     @NotNull
-    private Message<?> createNewMessage() throws IOException, ClientException {
-        Message<?> message;
+    Message<?> createNewMessage() throws IOException, ClientException {
+        if (preparedMessage == null) {
+            preparedMessage = prepareMessage();
+        }
+        return createMessage(preparedMessage);
+    }
+
+    @NotNull
+    PreparedMessage prepareMessage() throws IOException {
+        Object body;
         if (msgContentListItem != null && !msgContentListItem.isEmpty()) {  // TODO check only one of these is specified
             List<Object> list = new ArrayList<>();
             for (String item : msgContentListItem) {
                 Content content = new Content(contentType.toString(), item, false);  // TODO do this in args parsing?
                 list.add(content.getValue());
             }
-            message = Message.create((Object) list);
+            body = list;
         } else if (msgContentMapItems != null) {
             Map<String, Object> map = new HashMap<>();
             for (String item : msgContentMapItems) {
                 Content content = new Content(contentType.toString(), item, true);  // TODO do this in args parsing?
                 map.put(content.getKey(), content.getValue());
             }
-            message = Message.create((Object) map);
+            body = map;
         } else if (msgContentFromFile != null) {
-            if (stringToBool(msgContentBinaryString)) {
-                message = Message.create(Files.readAllBytes(Paths.get(msgContentFromFile)));  // todo maybe param type as Path? check exists
+            if (stringToBool(msgContentStreamString)) {
+                body = null;  // read in chunks while sending, see performMessageStreaming
+            } else if (msgContentMmap) {
+                body = mapContent(Paths.get(msgContentFromFile));
+            } else if (stringToBool(msgContentBinaryString)) {
+                body = Files.readAllBytes(Paths.get(msgContentFromFile));  // todo maybe param type as Path? check exists
             } else {
-                message = Message.create(Files.readString(Paths.get(msgContentFromFile)));  // todo maybe param type as Path? check exists
+                body = Files.readString(Paths.get(msgContentFromFile));  // todo maybe param type as Path? check exists
             }
         } else {
-            message = Message.create(msgContent);
+            body = msgContent;
         }
+        Map<String, Object> properties = new LinkedHashMap<>();
         if (msgProperties != null) {
             for (String item : msgProperties) {
                 Content content = new Content(propertyType.toString(), item, true);  // TODO do this in args parsing?
-                message.property(content.getKey(), content.getValue());
+                properties.put(content.getKey(), content.getValue());
             }
         }
+        byte[] userId = stringToBool(connPopulateUserIdString) ? msgUserId.getBytes() : null;
+        return new PreparedMessage(body, properties, userId);
+    }
+
+    /**
+     * Create a new message sharing the prepared body and property values, and set the headers from options.
+     */
+    @NotNull
+    Message<?> createMessage(@NotNull PreparedMessage prepared) throws ClientException {
+        Message<?> message;
+        if (prepared.body instanceof ProtonBuffer) {
+            // the data section references the mapped buffer, it is copied only when the message is encoded
+            message = AdvancedMessage.create().addBodySection(new Data((ProtonBuffer) prepared.body));
+        } else if (prepared.body instanceof byte[]) {
+            message = Message.create((byte[]) prepared.body);
+        } else {
+            message = Message.create(prepared.body);
+        }
+        applyHeaders(message, prepared);
+        return message;
+    }
+
+    /**
+     * Map the whole file read-only and wrap the mapping as a read-only {@link ProtonBuffer}, without copying it.
+     */
+    static ProtonBuffer mapContent(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("--msg-content-mmap supports files up to 2 GiB, use --msg-content-stream for " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Netty4ProtonBufferAllocator allocator = new Netty4ProtonBufferAllocator(UnpooledByteBufAllocator.DEFAULT);
+            return allocator.wrap(Unpooled.wrappedBuffer(mapped)).convertToReadOnly();
+        }
+    }
+
+    /**
+     * Set the prepared properties and the headers from options, the body is left to the caller.
+     */
+    private void applyHeaders(@NotNull Message<?> message, @NotNull PreparedMessage prepared) throws ClientException {
+        for (Map.Entry<String, Object> property : prepared.properties.entrySet()) {
+            message.property(property.getKey(), property.getValue());
+        }
         if (msgId != null) {
             message.messageId(msgId);
         }
@@ -355,8 +603,8 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
         if (contentType != null) {
             message.contentType(contentType.toString()); // TODO: maybe should do more with it? don't bother with enum?
         }
-        if (stringToBool(connPopulateUserIdString)) {
-            message.userId(msgUserId.getBytes());
+        if (prepared.userId != null) {
+            message.userId(prepared.userId);
         }
         if (msgSubject != null) {
             message.subject(msgSubject);
@@ -364,6 +612,21 @@ public class CliProtonJ2Sender extends CliProtonJ2SenderReceiver implements Call
         if (msgPriority != null) {
             message.priority((byte) (int) msgPriority);
         }
-        return message;
+    }
+
+    /**
+     * Message body and properties parsed from options. Messages created from it share the values,
+     * which are never modified.
+     */
+    static class PreparedMessage {
+        final Object body;
+        final Map<String, Object> properties;
+        final byte[] userId;
+
+        PreparedMessage(Object body, Map<String, Object> properties, byte[] userId) {
+            this.body = body;
+            this.properties = properties;
+            this.userId = userId;
+        }
     }
 }
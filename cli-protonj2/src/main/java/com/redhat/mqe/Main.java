@@ -1,14 +1,21 @@
 package com.redhat.mqe;
 
 import com.redhat.mqe.lib.LogConfigurator;
+import com.redhat.mqe.lib.RateLimiter;
+import com.redhat.mqe.lib.ThroughputReporter;
+import org.apache.qpid.protonj2.client.AdvancedMessage;
 import org.apache.qpid.protonj2.client.ConnectionOptions;
 import org.apache.qpid.protonj2.client.Message;
 import org.apache.qpid.protonj2.client.exceptions.ClientException;
+import org.apache.qpid.protonj2.types.messaging.Data;
+import org.apache.qpid.protonj2.types.messaging.Section;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
 import java.util.ArrayList;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -154,9 +161,17 @@ class CliProtonJ2SenderReceiver extends CliProtonJ2SenderReceiverConnector {
     @CommandLine.Option(names = {"--msg-content-hashed"}, arity = "0..1")
     protected boolean msgContentHashed = false;
 
+    @CommandLine.Option(names = {"--log-msgs-sample"}, description = "print only every Nth message")
+    protected int logMsgsSample = 1;
+
+    private long loggedMessages;
+
     @CommandLine.Option(names = {"-a", "--address"}, description = "")
     protected String address = "";
 
+    @CommandLine.Option(names = {"--report-interval"}, description = "print throughput statistics every given number of seconds and a summary at exit")
+    protected double reportInterval = 0;
+
     public CliProtonJ2SenderReceiver() {
         this.messageFormatter = new ProtonJ2MessageFormatter();
     }
@@ -165,7 +180,71 @@ class CliProtonJ2SenderReceiver extends CliProtonJ2SenderReceiverConnector {
         this.messageFormatter = messageFormatter;
     }
 
+    /**
+     * Wait for the given iteration of the --rate or --duration schedule, if any.
+     */
+    protected static void pace(@Nullable RateLimiter rateLimiter, int iteration) {
+        if (rateLimiter != null) {
+            rateLimiter.await(iteration);
+        }
+    }
+
+    /**
+     * Count the message in throughput statistics of the --report-interval reporter, if any.
+     */
+    protected static void countMessage(@Nullable ThroughputReporter reporter, Message<?> message) throws ClientException {
+        if (reporter != null) {
+            reporter.recordMessage(bodySize(message));
+        }
+    }
+
+    /**
+     * Size of a string or binary body. Data sections are measured without {@link Message#body()},
+     * which copies a buffer backed section (e.g. --msg-content-mmap) into a new byte[].
+     */
+    private static long bodySize(Message<?> message) throws ClientException {
+        if (message instanceof AdvancedMessage) {
+            long size = -1;
+            for (Section<?> section : ((AdvancedMessage<?>) message).bodySections()) {
+                if (section instanceof Data) {
+                    size = Math.max(size, 0) + ((Data) section).getDataLength();
+                }
+            }
+            if (size != -1) {
+                return size;
+            }
+        }
+        Object body = message.body();
+        if (body instanceof String) {
+            return ThroughputReporter.utf8Length((String) body);
+        } else if (body instanceof byte[]) {
+            return ((byte[]) body).length;
+        }
+        return 0;
+    }
+
+    /**
+     * Chunk size for --msg-content-stream, the only part of a streamed message body held in memory.
+     */
+    protected static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Print message count, bytes and throughput in MB/s of --msg-content-stream.
+     */
+    protected void printStreamStatistics(long messages, long bytes, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("stream-messages", messages);
+        stats.put("stream-bytes", bytes);
+        stats.put("stream-seconds", seconds);
+        stats.put("stream-mb-per-s", (seconds == 0) ? 0.0 : bytes / 1e6 / seconds);
+        messageFormatter.printStatistics(stats);
+    }
+
     protected <E> void printMessage(Message<E> message) throws ClientException {
+        if (logMsgsSample > 1 && loggedMessages++ % logMsgsSample != 0) {
+            return;
+        }
         Map<String, Object> messageDict = messageFormatter.formatMessage(address, message, msgContentHashed);
         switch (out) {
             case python:
@@ -53,4 +53,26 @@ class CliProtonJ2SenderTest {
             assertThat(v).containsExactly("", "pepa");
         }
     }
+
+    @Nested
+    class MaxInFlight {
+        final CliProtonJ2Sender sender = new CliProtonJ2Sender();
+        final CommandLine commandLine = new CommandLine(sender);
+
+        @Test
+        void test_maxInFlight__default_waits_for_each_message() {
+            commandLine.parseArgs();
+
+            int v = Whitebox.getInternalState(sender, "maxInFlight", sender.getClass());
+            assertThat(v).isEqualTo(1);
+        }
+
+        @Test
+        void test_maxInFlight() {
+            commandLine.parseArgs("--max-in-flight", "100");
+
+            int v = Whitebox.getInternalState(sender, "maxInFlight", sender.getClass());
+            assertThat(v).isEqualTo(100);
+        }
+    }
 }
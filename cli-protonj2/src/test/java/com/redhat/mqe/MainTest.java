@@ -25,11 +25,15 @@ import kotlin.jvm.internal.Intrinsics;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.function.Executable;
 import util.Broker;
 import util.BrokerFixture;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Permission;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 class SystemExitingWithStatus extends RuntimeException {
@@ -160,6 +164,69 @@ class MainTest {
         t.join();
     }
 
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    @ExtendWith(BrokerFixture.class)
+    void testMaxInFlight(@BrokerFixture.TempBroker Broker broker) throws Throwable {
+        broker.configuration.setSecurityEnabled(false);
+        broker.configuration.setPersistenceEnabled(false);
+        broker.startBroker();
+        String brokerUrl = "localhost:" + broker.addAMQPAcceptor();
+
+        // the window is drained at the tx boundaries and at the end
+        checkMainInvocation("sender --log-msgs dict --broker " + brokerUrl + " --address test_max_in_flight --count 100 --msg-content max-in-flight --max-in-flight 8");
+        checkMainInvocation("sender --log-msgs dict --broker " + brokerUrl + " --address test_max_in_flight --count 50 --max-in-flight 8 --tx-size 20 --tx-endloop-action commit");
+        Truth.assertThat(broker.getProxyToQueue("test_max_in_flight").getMessageCount()).isEqualTo(150);
+
+        checkMainInvocation("receiver --timeout 10 --log-msgs dict --broker " + brokerUrl + " --address test_max_in_flight --count 150");
+        Truth.assertThat(broker.getProxyToQueue("test_max_in_flight").getMessageCount()).isEqualTo(0);
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    @ExtendWith(BrokerFixture.class)
+    void testMessageContentStream(@BrokerFixture.TempBroker Broker broker, @TempDir Path tempDir) throws Throwable {
+        broker.configuration.setSecurityEnabled(false);
+        broker.configuration.setPersistenceEnabled(false);
+        broker.startBroker();
+        String brokerUrl = "localhost:" + broker.addAMQPAcceptor();
+
+        // several chunks, and larger than the broker large message threshold
+        byte[] content = new byte[3 * 1024 * 1024 + 7];
+        new Random(42).nextBytes(content);
+        Path input = tempDir.resolve("input");
+        Files.write(input, content);
+        Path output = tempDir.resolve("output");
+
+        checkMainInvocation("sender --log-msgs dict --broker " + brokerUrl + " --address test_message_content_stream --count 2 --msg-content-from-file " + input + " --msg-content-binary true --msg-content-stream true");
+        checkMainInvocation("receiver --timeout 10 --log-msgs dict --broker " + brokerUrl + " --address test_message_content_stream --count 2 --msg-binary-content-to-file " + output + " --msg-content-stream true");
+
+        Truth.assertThat(Files.readAllBytes(tempDir.resolve("output_0"))).isEqualTo(content);
+        Truth.assertThat(Files.readAllBytes(tempDir.resolve("output_1"))).isEqualTo(content);
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    @ExtendWith(BrokerFixture.class)
+    void testMessageContentMmap(@BrokerFixture.TempBroker Broker broker, @TempDir Path tempDir) throws Throwable {
+        broker.configuration.setSecurityEnabled(false);
+        broker.configuration.setPersistenceEnabled(false);
+        broker.startBroker();
+        String brokerUrl = "localhost:" + broker.addAMQPAcceptor();
+
+        byte[] content = new byte[1024 * 1024 + 7];
+        new Random(42).nextBytes(content);
+        Path input = tempDir.resolve("input");
+        Files.write(input, content);
+        Path output = tempDir.resolve("output");
+
+        checkMainInvocation("sender --log-msgs dict --broker " + brokerUrl + " --address test_message_content_mmap --count 2 --msg-content-from-file " + input + " --msg-content-binary true --msg-content-mmap");
+        checkMainInvocation("receiver --timeout 10 --log-msgs dict --msg-content-hashed --broker " + brokerUrl + " --address test_message_content_mmap --count 2 --msg-binary-content-to-file " + output);
+
+        Truth.assertThat(Files.readAllBytes(tempDir.resolve("output_0"))).isEqualTo(content);
+        Truth.assertThat(Files.readAllBytes(tempDir.resolve("output_1"))).isEqualTo(content);
+    }
+
     @Test
     @Disabled("These commands take way too long to execute, now that --duration works how it should")
     @Timeout(value = 60, unit = TimeUnit.SECONDS)
@@ -205,10 +205,9 @@ class ProtonJ2MainTest : AbstractMainTest() {
     }
 
     /**
-     * Large message streaming from/to java.io.{Input,Output}Stream is artemis-jms-client only
+     * Large message streaming with StreamSender/StreamReceiver
      */
     @Test
-    @Disabled("Option --msg-content-stream true is not implemented in cli-protonj2")
     fun sendLargeMessageStreamFile() {
         val file = File.createTempFile(address, null)
         val outputDirectory = Files.createTempDirectory(address)
@@ -238,10 +237,9 @@ class ProtonJ2MainTest : AbstractMainTest() {
     }
 
     /**
-     * Large message streaming from/to java.io.{Input,Output}Stream is artemis-jms-client only
+     * Large message streaming with StreamSender/StreamReceiver
      */
     @Test
-    @Disabled("Option --msg-content-stream true is not implemented in cli-protonj2")
     fun sendAndReceiveLargeMessageStreamFile() {
         val file = File.createTempFile(address, "input")
         val outputDirectory = Files.createTempDirectory(address)
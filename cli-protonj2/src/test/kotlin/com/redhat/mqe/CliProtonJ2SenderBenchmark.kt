@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe
+
+import org.apache.qpid.protonj2.client.AdvancedMessage
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty
+import picocli.CommandLine
+import java.io.File
+import java.lang.management.ManagementFactory
+
+/**
+ * Measures what [CliProtonJ2Sender] spends building one message: with the body and properties prepared once
+ * (as the sender does) or prepared again for every message (as it used to), and with binary file content
+ * held on the heap or mapped with --msg-content-mmap.
+ *
+ * Run with `mvn test -Dtest=CliProtonJ2SenderBenchmark -Dbenchmark=true`.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CliProtonJ2SenderBenchmark {
+    @Test
+    fun `benchmark prepared message building`() {
+        val binary = tempFile(1024 * 1024)
+        val contents = listOf(
+            Triple("text", arrayOf("--msg-content", "hello world"), 1_000_000L),
+            Triple("map", (1..10).flatMap { listOf("--msg-content-map-item", "key$it=~$it") }.toTypedArray(), 1_000_000L),
+            Triple("list", (1..10).flatMap { listOf("--msg-content-list-item", "~$it") }.toTypedArray(), 1_000_000L),
+            Triple("file", arrayOf("--msg-content-from-file", binary.path, "--msg-content-binary", "true"), 2_000L)
+        )
+        for ((name, content, iterations) in contents) {
+            val sender = sender(*content, "--msg-property", "a=~1", "--msg-property", "b=text", "--msg-subject", "subject")
+            report("content=$name build=prepared", iterations) { sender.createNewMessage() }
+            report("content=$name build=unprepared", iterations) { sender.createMessage(sender.prepareMessage()) }
+        }
+        binary.delete()
+    }
+
+    /**
+     * Encoding is included because that is where the client copies the body before writing it out.
+     */
+    @Test
+    fun `benchmark mapped message content`() {
+        for (size in listOf(1024, 64 * 1024, 1024 * 1024, 16 * 1024 * 1024, 64 * 1024 * 1024)) {
+            val file = tempFile(size)
+            val iterations = maxOf(10L, 100_000_000L / size)
+            for (mmap in listOf(false, true)) {
+                val mmapArgs = if (mmap) arrayOf("--msg-content-mmap") else arrayOf()
+                val sender = sender("--msg-content-from-file", file.path, "--msg-content-binary", "true", *mmapArgs)
+                val content = if (mmap) "mmap" else "heap"
+                report("size=$size content=$content step=create", iterations) { sender.createNewMessage() }
+                report("size=$size content=$content step=encode", iterations) {
+                    (sender.createNewMessage() as AdvancedMessage<*>).encode(emptyMap()).close()
+                }
+            }
+            file.delete()
+        }
+    }
+
+    private fun sender(vararg args: String): CliProtonJ2Sender {
+        val sender = CliProtonJ2Sender()
+        CommandLine(sender).parseArgs(*args)
+        return sender
+    }
+
+    private fun tempFile(size: Int): File {
+        val file = File.createTempFile("benchmark", ".bin")
+        file.writeBytes(ByteArray(size))
+        file.deleteOnExit()
+        return file
+    }
+
+    /**
+     * Calls body iterations times after a warmup and prints the time and the heap bytes allocated per call.
+     */
+    private fun report(label: String, iterations: Long, body: () -> Any) {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val thread = Thread.currentThread().id
+        for (i in 0 until maxOf(1L, iterations / 5)) {
+            body()
+        }
+        val startBytes = threads.getThreadAllocatedBytes(thread)
+        val startNanos = System.nanoTime()
+        for (i in 0 until iterations) {
+            body()
+        }
+        val nanos = (System.nanoTime() - startNanos) / iterations
+        val bytes = (threads.getThreadAllocatedBytes(thread) - startBytes) / iterations
+        println("BENCHMARK $label ns/msg=$nanos alloc-bytes/msg=$bytes")
+    }
+}
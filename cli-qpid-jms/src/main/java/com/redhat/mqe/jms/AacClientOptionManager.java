@@ -88,6 +88,7 @@ public class AacClientOptionManager extends ClientOptionManager {
         CONNECTION_TRANSLATION_MAP.put(AacClientOptions.CON_TCP_SOCK_LINGER, "transport.soLinger");
         CONNECTION_TRANSLATION_MAP.put(AacClientOptions.CON_TCP_KEEP_ALIVE, "transport.tcpKeepAlive");
         CONNECTION_TRANSLATION_MAP.put(AacClientOptions.CON_TCP_NO_DELAY, "transport.tcpNoDelay");
+        CONNECTION_TRANSLATION_MAP.put(AacClientOptions.CON_SHARED_EVENT_LOOP_THREADS, "transport.sharedEventLoopThreads");
     }
 
     @Inject
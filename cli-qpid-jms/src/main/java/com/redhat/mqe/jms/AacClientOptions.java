@@ -101,6 +101,7 @@ public abstract class AacClientOptions extends ClientOptions {
     static final String CON_TCP_SOCK_LINGER = "conn-tcp-sock-linger";             // transport.soLinger
     static final String CON_TCP_KEEP_ALIVE = "conn-tcp-keep-alive";               // transport.tcpKeepAlive
     static final String CON_TCP_NO_DELAY = "conn-tcp-no-delay";                   // transport.tcpNoDelay
+    static final String CON_SHARED_EVENT_LOOP_THREADS = "conn-shared-event-loop-threads"; // transport.sharedEventLoopThreads
 
     static final String CON_RECONNECT = "conn-reconnect";                         // enable reconnect options
     static final String CON_RECONNECT_INITIAL_DELAY = "conn-reconnect-initial-delay"; // failover.initialReconnectDelay (0)
@@ -293,6 +294,7 @@ public abstract class AacClientOptions extends ClientOptions {
             new Option(CON_TCP_SOCK_LINGER, "", "TIMEOUT", "-1", "?tcp socket linger timeout"),
             new Option(CON_TCP_KEEP_ALIVE, "", "ENABLED", "false", "send tcp keep alive packets"),
             new Option(CON_TCP_NO_DELAY, "", "ENABLED", "true", "use tcp_nodelay (automatic concatenation of small packets into bigger frames)"),
+            new Option(CON_SHARED_EVENT_LOOP_THREADS, "", "THREADS", "-1", "share THREADS event loop threads between all connections, instead of a thread per connection (-1 disabled)"),
 
             new Option(TRANSACTED, "", "ENABLED", "false", "whether the session is transacted or not"),
             new Option(MSG_DURABLE, "false"),
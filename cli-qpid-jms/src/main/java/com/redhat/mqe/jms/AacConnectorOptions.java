@@ -42,6 +42,9 @@ public class AacConnectorOptions extends AacClientOptions {
             new Option(ADDRESS, "a", "CCADDRESS", "?", "If specified the C senders and receivers are created for this address"),
             new Option(OBJ_CTRL, "", "OBJCTRL", "C", "Optional creation object control (syntax C/E/S/R/Q stands for Connection, sEssion, Sender, Receiver, Queue)"),
             new Option(COUNT, "c", "CONNCOUNT", "1", "Specify how many connections will make"),
+            new Option(CONNECT_PARALLELISM, "", "THREADS", "1", "Specify how many connections are opened at the same time"),
+            new Option(CONNECT_RATE, "", "RATE", "0", "Open at most RATE connections per second (0 for no limit)"),
+            new Option(DURATION, "", "DURATION", "0", "hold the opened connections for DURATION seconds, reporting dropped connections and client heap and threads per connection (soak)"),
             new Option(Q_COUNT, "", "QCOUNT", "1", "Specify amount of queues created"),
             // TODO JMS+SYNC_MODE?
             new Option(SYNC_MODE, "", "SMODE", "action", "Optional action synchronization mode: none/session/action (JMS does not support none & session modes)")
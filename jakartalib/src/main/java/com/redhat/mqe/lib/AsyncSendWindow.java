@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.jms.CompletionListener;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends messages asynchronously using JMS 2.0 CompletionListener, keeping
+ * at most maxInFlight of them waiting for the completion at a time.
+ * Counts acknowledged and failed sends and records the ack latency.
+ * <p>
+ * The message belongs to the provider until its send completes, so the {@link Callback}
+ * is the only place where the sent message may be accessed. Failed messages which the
+ * callback wants to send again are resent by the sending thread, on its next send or drain.
+ */
+class AsyncSendWindow {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncSendWindow.class);
+
+    /**
+     * Outcome of the asynchronous sends, called on the thread completing the send.
+     */
+    interface Callback {
+        /**
+         * @param message message which has been sent
+         */
+        void completed(Message message);
+
+        /**
+         * @param message   message which failed to be sent
+         * @param exception reason of the failure
+         * @return true if the message should be sent again
+         */
+        boolean resend(Message message, Exception exception);
+    }
+
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Queue<Message> resendQueue = new ConcurrentLinkedQueue<>();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyStatistics ackLatency = new LatencyStatistics();
+    private final ThroughputReporter reporter;
+    private final Callback callback;
+
+    /**
+     * @param maxInFlight maximal number of sends waiting for completion
+     * @param reporter    throughput reporter to count failed sends in, may be null
+     * @param callback    receives the completed sends
+     */
+    AsyncSendWindow(int maxInFlight, ThroughputReporter reporter, Callback callback) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.reporter = reporter;
+        this.callback = callback;
+    }
+
+    /**
+     * Send message asynchronously, wait first if the window is full.
+     * Failed messages waiting to be resent are sent before it.
+     *
+     * @param producer producer to send the message with
+     * @param message  message to be sent
+     * @throws JMSException if the send could not be started
+     */
+    void send(MessageProducer producer, Message message) throws JMSException {
+        resendFailed(producer);
+        sendAsync(producer, message);
+    }
+
+    /**
+     * Wait until all the outstanding sends are completed, including the resent ones.
+     *
+     * @param producer producer to resend failed messages with
+     * @throws JMSException if a resend could not be started
+     */
+    void drain(MessageProducer producer) throws JMSException {
+        while (true) {
+            inFlight.acquireUninterruptibly(maxInFlight);
+            inFlight.release(maxInFlight);
+            if (resendQueue.isEmpty()) {
+                return;
+            }
+            resendFailed(producer);
+        }
+    }
+
+    private void resendFailed(MessageProducer producer) throws JMSException {
+        Message message;
+        while ((message = resendQueue.poll()) != null) {
+            sendAsync(producer, message);
+        }
+    }
+
+    private void sendAsync(MessageProducer producer, Message message) throws JMSException {
+        inFlight.acquireUninterruptibly();
+        final long sendNanos = System.nanoTime();
+        try {
+            producer.send(message, new CompletionListener() {
+                @Override
+                public void onCompletion(Message message) {
+                    ackLatency.recordNanos(System.nanoTime() - sendNanos);
+                    acknowledged.increment();
+                    try {
+                        callback.completed(message);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+
+                @Override
+                public void onException(Message message, Exception exception) {
+                    try {
+                        if (callback.resend(message, exception)) {
+                            // queued before the permit is released, so that drain sees it
+                            resendQueue.add(message);
+                            return;
+                        }
+                        LOG.error("Asynchronous send failed! {}", exception.getMessage());
+                        failed.increment();
+                        if (reporter != null) {
+                            reporter.recordError();
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (JMSException | RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    long getAcknowledged() {
+        return acknowledged.sum();
+    }
+
+    long getFailed() {
+        return failed.sum();
+    }
+
+    LatencyStatistics getAckLatency() {
+        return ackLatency;
+    }
+}
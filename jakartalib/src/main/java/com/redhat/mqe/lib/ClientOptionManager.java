@@ -428,6 +428,10 @@ public abstract class ClientOptionManager {
                 case ClientOptions.CON_IGNORE_REMOTE_CLOSE:
                     // ignore remote connection close, nothing to do here
                     return;
+                case ClientOptions.CONNECT_PARALLELISM:
+                case ClientOptions.CONNECT_RATE:
+                    // connector options, not passed to the connection
+                    return;
                 default:
                     LOG.error("Connection option {} is not recognized! ", option.getName());
                     System.exit(2);
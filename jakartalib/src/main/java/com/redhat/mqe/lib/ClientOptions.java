@@ -59,6 +59,9 @@ public abstract class ClientOptions {
     public static final String ADDRESS = "address";
     public static final String DURATION = "duration";
     public static final String DURATION_MODE = "duration-mode";
+    public static final String RATE = "rate";
+    public static final String RATE_BURST = "rate-burst";
+    public static final String REPORT_INTERVAL = "report-interval";
     static final String LOG_LEVEL = "log-lib";
     static final String LOG_STATS = "log-stats";
     public static final String LOG_BYTES = "log-bytes";
@@ -165,6 +168,7 @@ public abstract class ClientOptions {
     static final String TIMEOUT = "timeout";
     public static final String COUNT = "count";
     static final String LOG_MSGS = "log-msgs";
+    public static final String LOG_MSGS_SAMPLE = "log-msgs-sample";
     public static final String TX_SIZE = "tx-size";
     public static final String TX_ACTION = "tx-action";
     public static final String TX_ENDLOOP_ACTION = "tx-endloop-action";
@@ -219,12 +223,33 @@ public abstract class ClientOptions {
     public static final String MSG_REPLY_TO_GROUP_ID = "msg-reply-to-group-id";
 
     public static final String ON_RELEASE = "on-release";
+    public static final String PRODUCERS = "producers";
+    public static final String PRODUCER_CONNECTIONS = "producer-connections";
+    public static final String MAX_IN_FLIGHT = "max-in-flight";
+    public static final String LATENCY_STAMP = "latency-stamp";
+    public static final String LATENCY_STATS = "latency-stats";
+    public static final String LATENCY_LOG = "latency-log";
+    public static final String LATENCY_CORRECT_CO = "latency-correct-co";
+    public static final String CONSUMERS = "consumers";
+    public static final String CONSUMER_CONNECTIONS = "consumer-connections";
+    public static final String ACK_BATCH = "ack-batch";
+    public static final String ACK_INTERVAL = "ack-interval";
+    public static final String RECV_WAIT_STRATEGY = "recv-wait-strategy";
+    public static final String REPLY_CACHE_SIZE = "reply-cache-size";
+    public static final String REPLY_CACHE_IDLE = "reply-cache-idle";
+    public static final String REPLY_ANONYMOUS = "reply-anonymous";
+    public static final String MSG_CONTENT_STORE = "msg-content-store";
+    public static final String MSG_CONTENT_SEGMENT_SIZE = "msg-content-segment-size";
+    public static final String SEQ_STAMP = "seq-stamp";
+    public static final String SEQ_TRACK = "seq-track";
 
     /**
      * CONNECTOR
      */
     static final String OBJ_CTRL = "obj-ctrl";
     static final String Q_COUNT = "q-count";
+    public static final String CONNECT_PARALLELISM = "connect-parallelism";
+    public static final String CONNECT_RATE = "connect-rate";
 
     /**
      * QMF Options?
@@ -25,4 +25,12 @@ public abstract class ConnectionManagerFactory {
     protected ConnectionManager makeJndi(ClientOptions clientOptions, String brokerUri) {
         return new JndiConnectionManager(clientOptions, brokerUri);
     }
+
+    /**
+     * Provider specific acknowledge mode where message.acknowledge() acknowledges only that message,
+     * for the "individual" ssn-ack-mode. Qpid JMS and ActiveMQ Artemis use 101.
+     */
+    protected int getIndividualAcknowledgeMode() {
+        return 101;
+    }
 }
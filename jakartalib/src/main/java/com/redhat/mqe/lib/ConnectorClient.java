@@ -23,19 +23,33 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import jakarta.jms.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ConnectorClient is an Messaging QE client, which is able to
  * create connections to provided brokers. Connector can create multiple
  * Connection, Session, MessageProducer, MessageConsumer and TemporaryQueue objects.
  * It can wait for given time
+ * <p>
+ * Connections can be opened by several threads at once and ramped up to a number
+ * of connections per second; the time to open every connection is recorded.
+ * With a duration, the opened connections are held for that long, see {@link ConnectionSoak}.
  */
 public class ConnectorClient extends CoreClient {
 
     private final ClientOptions connectorOptions;
-    private int connectionsOpened = 0;
-    private static final List<Throwable> exceptions = new ArrayList<>();
+    private final AtomicInteger connectionsOpened = new AtomicInteger();
+    private final LatencyStatistics connectLatency = new LatencyStatistics();
+    private static final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<>());
+    private RateLimiter connectRamp;
+    private ConnectionSoak soak;
+    private int connectRampIteration = 0;
 
     @Inject
     public ConnectorClient(ConnectionManagerFactory connectionManagerFactory, JmsMessageFormatter jmsMessageFormatter, @Named("Connector") ClientOptions options) {
@@ -47,118 +61,171 @@ public class ConnectorClient extends CoreClient {
 
     @Override
     public void startClient() {
-        // start all connections
-        createConnectionObjects(connectorOptions.getOption(ClientOptions.OBJ_CTRL).getDefaultValue());
+        int count = Integer.parseInt((this.getClientOptions().getOption(ClientOptions.COUNT).getValue()));
+        int parallelism = Math.max(1, Math.min(count, Integer.parseInt(connectorOptions.getOption(ClientOptions.CONNECT_PARALLELISM).getValue())));
+        double connectRate = Double.parseDouble(connectorOptions.getOption(ClientOptions.CONNECT_RATE).getValue());
+        connectRamp = RateLimiter.create(connectRate, 1, count, 0);
+        double duration = Double.parseDouble(connectorOptions.getOption(ClientOptions.DURATION).getValue());
+        if (duration > 0) {
+            soak = new ConnectionSoak();
+        }
+
+        // open all connections
+        openConnections(connectorOptions.getOption(ClientOptions.OBJ_CTRL).getDefaultValue(), count, parallelism);
+        if (soak != null) {
+            soak.opened(connectionsOpened.get());
+            soak.hold(duration);
+        }
         if (exceptions.isEmpty()) {
-            startConnections();
+            closeConnObjects(this,
+                Double.parseDouble(this.getClientOptions().getOption(ClientOptions.CLOSE_SLEEP).getValue()));
         }
 
-        int count = Integer.parseInt((this.getClientOptions().getOption(ClientOptions.COUNT).getValue()));
-        jmsMessageFormatter.printConnectorStatistics(connectionsOpened, count - connectionsOpened, count);
+        int opened = connectionsOpened.get();
+        if (parallelism > 1 || connectRamp != null) {
+            Hashtable<String, Object> connectStatistics = connectLatency.toStatistics();
+            connectStatistics.put("parallelism", parallelism);
+            connectStatistics.put("connect-rate", connectRate);
+            jmsMessageFormatter.printConnectorStatistics(opened, count - opened, count, connectStatistics);
+        } else {
+            jmsMessageFormatter.printConnectorStatistics(opened, count - opened, count);
+        }
+        if (soak != null) {
+            jmsMessageFormatter.printStatistics(soak.toStatistics());
+        }
 
         for (Throwable t : exceptions) {
             LOG.error(t.getMessage(), t.getCause());
         }
         closeConnObjects(this,
             Double.parseDouble(this.getClientOptions().getOption(ClientOptions.CLOSE_SLEEP).getValue()));
-        if (!exceptions.isEmpty()) {
-            System.exit(exceptions.size());
+        int dropped = (soak == null) ? 0 : soak.getDropped();
+        if (!exceptions.isEmpty() || dropped > 0) {
+            // exit status is taken modulo 256, keep it non-zero for any number of failures
+            System.exit(Math.min(exceptions.size() + dropped, 255));
         }
     }
 
     /**
-     * Start connections created by ::createConnectionObject()
+     * Open given number of connections, each with the objects selected by objCtrl. A single connection
+     * at a time is opened on the calling thread, more of them at once get a thread pool.
+     *
+     * @param objCtrl     specifies which objects are to be created
+     * @param count       number of connections
+     * @param parallelism number of connections opened at the same time
      */
-    private void startConnections() {
-        for (Connection connection : this.getConnections()) {
+    private void openConnections(String objCtrl, int count, int parallelism) {
+        if (connectorOptions.getOption(ClientOptions.ADDRESS).hasParsedValue()) {
+            objCtrl = "CESR";
+        } else if (connectorOptions.getOption(ClientOptions.OBJ_CTRL).hasParsedValue()) {
+            objCtrl = connectorOptions.getOption(ClientOptions.OBJ_CTRL).getValue().toUpperCase();
+        }
+        AtomicInteger queuesLeft = new AtomicInteger();
+        if (objCtrl.contains("Q")) {
+            queuesLeft.set(Math.min(count, Integer.parseInt(connectorOptions.getOption(ClientOptions.Q_COUNT).getValue())));
+        }
+
+        final String connectionObjects = objCtrl;
+        if (parallelism == 1) {
+            for (int i = 0; i < count; i++) {
+                openConnection(connectionObjects, queuesLeft);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
             try {
-                if (connection != null) {
-                    connection.start();
-                    connectionsOpened++;
+                for (int i = 0; i < count; i++) {
+                    executor.execute(() -> openConnection(connectionObjects, queuesLeft));
                 }
-            } catch (JMSException e) {
-                exceptions.add(new MessagingException("Failed to start a connection.\n" + e.getMessage(), e.getCause()));
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalArgumentException("Interrupted while opening connections", e);
+            } finally {
+                executor.shutdownNow();
             }
         }
-        closeConnObjects(this,
-            Double.parseDouble(this.getClientOptions().getOption(ClientOptions.CLOSE_SLEEP).getValue()));
-    }
 
+        if (LOG.isTraceEnabled()) {
+            int conns = (getConnections() == null) ? 0 : getConnections().size();
+            int sesss = (getSessions() == null) ? 0 : getSessions().size();
+            int sends = (getProducers() == null) ? 0 : getProducers().size();
+            int reces = (getConsumers() == null) ? 0 : getConsumers().size();
+            int queues = (getQueues() == null) ? 0 : getQueues().size();
+            LOG.trace("\tC={}\tE={}\tS={}\tR={}\tQ={}", conns, sesss, sends, reces, queues);
+        }
+    }
 
     /**
-     * Create given number of Connection, Session, MessageProducer,
-     * MessageConsumer, TemporaryQueue objects.
+     * Create a Connection with Session, MessageProducer, MessageConsumer and TemporaryQueue objects,
+     * start it and record how long that took.
      *
-     * @param objCtrl specifies which objects are to be created
+     * @param objCtrl    specifies which objects are to be created
+     * @param queuesLeft number of temporary queues still to be created
      */
-    private void createConnectionObjects(String objCtrl) {
-        if (connectorOptions.getOption(ClientOptions.ADDRESS).hasParsedValue()) {
-            objCtrl = "CESR";
-        } else if (connectorOptions.getOption(ClientOptions.OBJ_CTRL).hasParsedValue()) {
-            objCtrl = connectorOptions.getOption(ClientOptions.OBJ_CTRL).getValue().toUpperCase();
+    private void openConnection(String objCtrl, AtomicInteger queuesLeft) {
+        if (connectRamp != null) {
+            synchronized (connectRamp) {
+                connectRamp.await(++connectRampIteration);
+            }
+        }
+        long startNanos = System.nanoTime();
+        Connection connection = createConnection(connectorOptions);
+        if (connection == null) {
+            return;
         }
-        int count = Integer.parseInt(connectorOptions.getOption(ClientOptions.COUNT).getValue());
         try {
-            // create N Connections
-            for (int i = 0; i < count; i++) {
-                this.createConnection(connectorOptions);
+            if (soak != null) {
+                watchConnection(connection);
             }
-
-            // create N sEssions
+            // create sEssion
             if (objCtrl.contains("E")) {
-                for (Connection connection : getConnections()) {
-                    createSession(connectorOptions, connection, false);
-                }
+                Session session = createSession(connectorOptions, connection, false);
 
                 Destination destination = null;
                 if (objCtrl.contains("S") || objCtrl.contains("R")) {
                     destination = this.getDestination();
                 }
-                // create N Senders (MessageProducers)
+                // create Sender (MessageProducer)
                 if (objCtrl.contains("S")) {
-                    for (Session session : getSessions()) {
-                        MessageProducer producer = session.createProducer(destination);
-                        addMessageProducer(producer);
-                    }
-                    // create N Receivers (MessageConsumers)
+                    addMessageProducer(session.createProducer(destination));
                 }
+                // create Receiver (MessageConsumer)
                 if (objCtrl.contains("R")) {
-                    for (Session session : getSessions()) {
-                        MessageConsumer consumer = session.createConsumer(destination);
-                        addMessageConsumer(consumer);
-                    }
+                    addMessageConsumer(session.createConsumer(destination));
                 }
                 // create temporary queue (the only queue we can create with JMSSession)
-                if (objCtrl.contains("Q")) {
-                    int qCount = Integer.parseInt(connectorOptions.getOption(ClientOptions.Q_COUNT).getValue());
-                    if (qCount > count) {
-                        qCount = count;
-                    }
-                    for (Session session : getSessions()) {
-                        if (qCount > 0) {
-                            Queue queue = session.createTemporaryQueue();
-                            addQueue(queue);
-                            qCount--;
-                        } else {
-                            break;
-                        }
-                    }
+                if (objCtrl.contains("Q") && queuesLeft.getAndDecrement() > 0) {
+                    addQueue(session.createTemporaryQueue());
                 }
             }
-
-            if (LOG.isTraceEnabled()) {
-                int conns = (getConnections() == null) ? 0 : getConnections().size();
-                int sesss = (getSessions() == null) ? 0 : getSessions().size();
-                int sends = (getProducers() == null) ? 0 : getProducers().size();
-                int reces = (getConsumers() == null) ? 0 : getConsumers().size();
-                int queues = (getQueues() == null) ? 0 : getQueues().size();
-                LOG.trace("\tC={}\tE={}\tS={}\tR={}\tQ={}", conns, sesss, sends, reces, queues);
-            }
         } catch (JMSException e) {
             exceptions.add(new MessagingException("Failed to create 'obj-ctrl.\n" + e.getMessage(), e.getCause()));
+            return;
+        }
+        try {
+            connection.start();
+            connectionsOpened.incrementAndGet();
+            connectLatency.recordNanos(System.nanoTime() - startNanos);
+        } catch (JMSException e) {
+            exceptions.add(new MessagingException("Failed to start a connection.\n" + e.getMessage(), e.getCause()));
         }
     }
 
+    /**
+     * Count the connection as dropped when the provider reports it failed, then pass the exception
+     * to the listener the connection had before.
+     */
+    private void watchConnection(Connection connection) throws JMSException {
+        ExceptionListener listener = connection.getExceptionListener();
+        connection.setExceptionListener(e -> {
+            soak.connectionDropped(connection);
+            if (listener != null) {
+                listener.onException(e);
+            }
+        });
+    }
+
     @Override
     ClientOptions getClientOptions() {
         return connectorOptions;
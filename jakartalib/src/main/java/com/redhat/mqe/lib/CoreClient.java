@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 //import javax.ws.rs.core.UriBuilder;  // helpful class that would sadly require bringing in additional dependency
 
@@ -47,15 +48,20 @@ import java.util.Map;
  */
 public abstract class CoreClient {
     protected static final Logger LOG = LoggerFactory.getLogger(CoreClient.class);
-    private ConnectionManager connectionManager;
+    private volatile ConnectionManager connectionManager;
     private static final Map<String, Integer> SESSION_ACK_MAP = new HashMap<>(5);
 
+    /**
+     * ssn-ack-mode where message.acknowledge() acknowledges only that message, the acknowledge mode
+     * value is provider specific, see {@link ConnectionManagerFactory#getIndividualAcknowledgeMode()}
+     */
+    static final String INDIVIDUAL_ACKNOWLEDGE = "individual";
+
     static {
 //    SESSION_ACK_MAP.put("transacted", Session.SESSION_TRANSACTED); // This is handled by TRANSACTED option
         SESSION_ACK_MAP.put("auto", Session.AUTO_ACKNOWLEDGE);
         SESSION_ACK_MAP.put("client", Session.CLIENT_ACKNOWLEDGE);
         SESSION_ACK_MAP.put("dups_ok", Session.DUPS_OK_ACKNOWLEDGE);
-//    SESSION_ACK_MAP.put("individual", Session.INDIVIDUAL_ACKNOWLEDGE); // ActiveMQSpecific?
     }
 
     private List<Connection> connections;
@@ -66,6 +72,7 @@ public abstract class CoreClient {
 
     protected ConnectionManagerFactory connectionManagerFactory;
     protected JmsMessageFormatter jmsMessageFormatter;
+    private final AtomicLong loggedMessages = new AtomicLong();
 
     @Inject
     @Nullable
@@ -127,7 +134,9 @@ public abstract class CoreClient {
     protected Session createSession(ClientOptions clientOptions, Connection connection, boolean transacted) {
         Session session = null;
 //    boolean transacted = Boolean.parseBoolean(clientOptions.getOption(ClientOptions.TRANSACTED).getValue());
-        int acknowledgeMode = SESSION_ACK_MAP.get(clientOptions.getOption(ClientOptions.SSN_ACK_MODE).getValue());
+        String ackMode = clientOptions.getOption(ClientOptions.SSN_ACK_MODE).getValue();
+        int acknowledgeMode = ackMode.equals(INDIVIDUAL_ACKNOWLEDGE)
+            ? connectionManagerFactory.getIndividualAcknowledgeMode() : SESSION_ACK_MAP.get(ackMode);
         try {
             // if transacted is true, acknowledgeMode is ignored
             session = connection.createSession(transacted, acknowledgeMode);
@@ -136,10 +145,12 @@ public abstract class CoreClient {
             e.printStackTrace();
             System.exit(1);
         }
-        if (sessions == null) {
-            sessions = new ArrayList<>();
+        synchronized (this) {
+            if (sessions == null) {
+                sessions = new ArrayList<>();
+            }
+            sessions.add(session);
         }
-        sessions.add(session);
         return session;
     }
 
@@ -167,7 +178,7 @@ public abstract class CoreClient {
      *
      * @param connection to be added to the list
      */
-    void addConnection(Connection connection) {
+    synchronized void addConnection(Connection connection) {
         if (connections == null) {
             connections = new ArrayList<>(getCount());
         }
@@ -188,7 +199,7 @@ public abstract class CoreClient {
      *
      * @param session to be added to session list
      */
-    void addSession(Session session) {
+    synchronized void addSession(Session session) {
         if (sessions == null) {
             sessions = new ArrayList<>(getCount());
         }
@@ -209,7 +220,7 @@ public abstract class CoreClient {
      *
      * @param messageProducer to be added to messageProducers list
      */
-    void addMessageProducer(MessageProducer messageProducer) {
+    synchronized void addMessageProducer(MessageProducer messageProducer) {
         if (messageProducers == null) {
             messageProducers = new ArrayList<>(getCount());
         }
@@ -230,7 +241,7 @@ public abstract class CoreClient {
      *
      * @param messageConsumer to be added to messageConsumers list
      */
-    void addMessageConsumer(MessageConsumer messageConsumer) {
+    synchronized void addMessageConsumer(MessageConsumer messageConsumer) {
         if (messageConsumers == null) {
             messageConsumers = new ArrayList<>(getCount());
         }
@@ -242,7 +253,7 @@ public abstract class CoreClient {
      *
      * @param queue to be added to queues list
      */
-    void addQueue(Queue queue) {
+    synchronized void addQueue(Queue queue) {
         if (queues == null) {
             queues = new ArrayList<>(getCount());
         }
@@ -369,13 +380,18 @@ public abstract class CoreClient {
     /**
      * Print message using JmsMessageFormatter in given format.
      * Printing format is specified using LOG_MSGS value
-     * as (dict|body|upstream|none).
+     * as (dict|body|upstream|none). With LOG_MSGS_SAMPLE n,
+     * only every nth message is formatted and printed.
      *
      * @param clientOptions options of the client
      * @param message       to be printed
      */
     protected void printMessage(ClientOptions clientOptions, Message message) {
         final String logMsgs = clientOptions.getOption(ClientOptions.LOG_MSGS).getValue();
+        final long sample = Long.parseLong(clientOptions.getOption(ClientOptions.LOG_MSGS_SAMPLE).getValue());
+        if (sample > 1 && loggedMessages.getAndIncrement() % sample != 0) {
+            return;
+        }
         final String out = clientOptions.getOption(ClientOptions.OUT).getValue();
         boolean hashContent = Boolean.parseBoolean(clientOptions.getOption(ClientOptions.MSG_CONTENT_HASHED).getValue());
         Map<String, Object> messageData = null;
@@ -447,6 +463,53 @@ public abstract class CoreClient {
         }
     }
 
+    /**
+     * Create rate limiter from the rate or duration options of the client.
+     *
+     * @param clientOptions options of the client
+     * @param count         number of messages handled by the paced loop
+     * @param loops         number of parallel loops sharing the configured rate
+     * @return configured rate limiter, or null if no pacing was requested
+     */
+    protected static RateLimiter createRateLimiter(ClientOptions clientOptions, int count, int loops) {
+        double rate = Double.parseDouble(clientOptions.getOption(ClientOptions.RATE).getValue()) / loops;
+        int burst = Integer.parseInt(clientOptions.getOption(ClientOptions.RATE_BURST).getValue());
+        double duration = Double.parseDouble(clientOptions.getOption(ClientOptions.DURATION).getValue());
+        return RateLimiter.create(rate, burst, count, duration);
+    }
+
+    /**
+     * Start periodic throughput reporting, if the client was asked for it.
+     *
+     * @param clientOptions options of the client
+     * @param formatter     formatter to print the statistics with
+     * @return started reporter, or null if no reporting was requested
+     */
+    protected static ThroughputReporter createThroughputReporter(ClientOptions clientOptions, MessageFormatter formatter) {
+        return ThroughputReporter.start(formatter, Double.parseDouble(clientOptions.getOption(ClientOptions.REPORT_INTERVAL).getValue()));
+    }
+
+    /**
+     * @return messages per second, 0 if no time elapsed
+     */
+    protected static double rate(long messages, long nanos) {
+        return (nanos == 0) ? 0 : messages * 1e9 / nanos;
+    }
+
+    /**
+     * Do the given transaction and count it in the throughput statistics.
+     *
+     * @param session     to do transaction on this session
+     * @param transaction transaction action type to perform
+     * @param reporter    throughput reporter, may be null
+     */
+    protected static void doTransaction(Session session, String transaction, ThroughputReporter reporter) {
+        doTransaction(session, transaction);
+        if (reporter != null && transaction.equalsIgnoreCase("commit")) {
+            reporter.recordCommit();
+        }
+    }
+
     /**
      * Set global options applicable to all clients.
      * Only Logging for now.
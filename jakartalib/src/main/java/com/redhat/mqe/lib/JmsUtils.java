@@ -34,6 +34,7 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 
 public class JmsUtils {
     private static final Logger LOG = LoggerFactory.getLogger(Utils.class);
@@ -67,6 +68,51 @@ public class JmsUtils {
         return ttl;
     }
 
+    /**
+     * Size of the message body in bytes, as far as it can be told without reading the body.
+     * TextMessage counts its text as encoded in UTF-8, other than text and bytes messages count as 0.
+     * BytesMessage has to be in read-only mode.
+     *
+     * @param message message to measure
+     * @return body size
+     */
+    public static long getBodySize(Message message) throws JMSException {
+        if (message instanceof TextMessage) {
+            return ThroughputReporter.utf8Length(((TextMessage) message).getText());
+        }
+        if (message instanceof BytesMessage) {
+            return ((BytesMessage) message).getBodyLength();
+        }
+        return 0;
+    }
+
+    /**
+     * Message body (text or binary) as bytes, for writing into a {@link SegmentedContentStore}.
+     * Text is encoded as UTF-8, StreamMessage content is serialized as in {@link #writeMessageContentToFile}.
+     *
+     * @param message message to read the body of
+     * @return body bytes, or null for messages other than bytes, stream and text messages
+     */
+    public static byte[] getMessageContent(Message message) throws JMSException, IOException {
+        if (message instanceof BytesMessage) {
+            BytesMessage bm = (BytesMessage) message;
+            byte[] content = new byte[(int) bm.getBodyLength()];
+            bm.reset();
+            bm.readBytes(content);
+            return content;
+        } else if (message instanceof StreamMessage) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                oos.writeObject(((StreamMessage) message).readObject());
+            }
+            return baos.toByteArray();
+        } else if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            return (text == null) ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
     public static void streamMessageContentToFile(String filePath, Message message, int msgCounter) {
         try {
             File outputFile = getFilePath(filePath, msgCounter);
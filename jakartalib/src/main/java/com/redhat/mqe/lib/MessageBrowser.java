@@ -57,10 +57,13 @@ public class MessageBrowser extends CoreClient {
     @Override
     public void startClient() {
         this.setMessageBrowser(clientOptions);
+        jmsMessageFormatter.startAsyncOutput();
         try {
             this.browseMessages();
         } catch (Exception e) {
             throw new MessagingException("unable to browse messages", e);
+        } finally {
+            jmsMessageFormatter.stopAsyncOutput();
         }
     }
 
@@ -19,19 +19,105 @@
 
 package com.redhat.mqe.lib;
 
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
 import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
 import jakarta.jms.MessageListener;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
 
+/**
+ * Receives messages pushed to one session of the {@link ReceiverClient}.
+ * <p>
+ * A session delivers its messages serially, so each listener runs the transaction or acknowledgement
+ * cycle of its own session and records latency on its own. The message count is shared by the listeners
+ * of all sessions. The listener which completes the count closes its consumer, so the session stops
+ * delivering. Listeners of the other sessions may still get one message past the count each, such
+ * a message is returned without processing: it is rolled back in a transacted session, recovered in
+ * auto and client acknowledge modes, and left unacknowledged in individual mode. Rollback and client
+ * acknowledge recovery return the unfinished messages of that session along with it.
+ */
 public class MessageListenerImpl implements MessageListener {
 
     private final ReceiverClient rcvrClient;
+    private final Session session;
+    private final MessageConsumer consumer;
+    private final int txSize;
+    private final String txAction;
+    private final LatencyRecorder latencyRecorder;
+    private final AckBatch<Message> ackBatch;
+    private final ReplySenderCache<Destination, MessageProducer> replyCache;
+    private int received;
 
-    MessageListenerImpl(ReceiverClient rcvrClient) {
+    MessageListenerImpl(ReceiverClient rcvrClient, Session session, MessageConsumer consumer, int txSize, String txAction) {
         this.rcvrClient = rcvrClient;
+        this.session = session;
+        this.consumer = consumer;
+        this.txSize = txSize;
+        this.txAction = txAction;
+        this.latencyRecorder = rcvrClient.createLatencyRecorder();
+        this.ackBatch = rcvrClient.createAckBatch();
+        this.replyCache = rcvrClient.createReplyCache();
     }
 
     @Override
-    public synchronized void onMessage(Message msg) {
-        rcvrClient.printMessage(rcvrClient.getClientOptions(), msg);
+    public void onMessage(Message msg) {
+        try {
+            int number = rcvrClient.claimListenerMessage();
+            if (number == 0) {
+                returnExcessMessage();
+                return;
+            }
+            rcvrClient.processListenerMessage(session, msg, number, latencyRecorder, replyCache);
+            received++;
+
+            if (session.getTransacted()) {
+                if (txSize != 0 && received % txSize == 0) {
+                    CoreClient.doTransaction(session, txAction, rcvrClient.getThroughputReporter());
+                }
+            } else if (rcvrClient.acknowledgesMessages(session)) {
+                rcvrClient.acknowledge(ackBatch.add(msg));
+            }
+            if (rcvrClient.isLastListenerMessage(number)) {
+                rcvrClient.acknowledge(ackBatch.drain());
+                // permitted from the listener of the consumer itself
+                consumer.close();
+            }
+            rcvrClient.listenerMessageCompleted(number);
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Stop the delivery to this session and give back the message delivered past the count.
+     */
+    private void returnExcessMessage() throws JMSException {
+        consumer.close();
+        if (session.getTransacted()) {
+            session.rollback();
+        } else if (rcvrClient.acknowledgesIndividually()) {
+            rcvrClient.acknowledge(ackBatch.drain());
+        } else {
+            // acknowledging the batch would acknowledge this message too in client mode
+            ackBatch.drain();
+            session.recover();
+        }
+    }
+
+    /**
+     * Acknowledge the last incomplete batch, once the session no longer delivers messages.
+     */
+    void acknowledgeRemaining() throws JMSException {
+        rcvrClient.acknowledge(ackBatch.drain());
+    }
+
+    ReplySenderCache<Destination, MessageProducer> getReplyCache() {
+        return replyCache;
+    }
+
+    LatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
     }
 }
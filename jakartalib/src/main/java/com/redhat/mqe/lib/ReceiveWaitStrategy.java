@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for the next message of a consumer in escalating steps: busy-spinning on receiveNoWait(),
+ * then yielding the thread between attempts, then parking it for growing periods, and at last
+ * blocking in receive() with a growing timeout. The strategy selects the step to start at,
+ * "block" is a single blocking receive, as it always was.
+ * <p>
+ * A receive gives up when no message arrived for the receiver timeout, 200 ms for timeout 0.
+ * Counts of attempts and received messages of every step are kept for the statistics.
+ * <p>
+ * Not thread-safe, every consumer should use its own instance.
+ */
+class ReceiveWaitStrategy {
+    enum Step {spin, yield, park, block}
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final int PARK_TRIES = 20;
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BLOCK_MILLIS = 200;
+
+    private final Step start;
+    private final long timeout;
+    private final long[] attempts = new long[Step.values().length];
+    private final long[] received = new long[Step.values().length];
+
+    /**
+     * @param strategy name of the step to start at
+     * @param timeout  receiver timeout in milliseconds, 0 for the default 200 ms, -1 to wait forever
+     * @throws IllegalArgumentException for unknown strategy
+     */
+    ReceiveWaitStrategy(String strategy, long timeout) {
+        this.start = Step.valueOf(strategy.toLowerCase(Locale.ROOT));
+        this.timeout = timeout;
+    }
+
+    boolean isBlocking() {
+        return start == Step.block;
+    }
+
+    /**
+     * @return received message, or null if none arrived within the timeout
+     */
+    Message receive(MessageConsumer consumer) throws JMSException {
+        if (start == Step.block) {
+            Message msg;
+            if (timeout == 0) {
+                // TODO JMS SPEC BUG https://java.net/jira/browse/JMS_SPEC-85
+                // msg = msgConsumer.receiveNoWait();
+                msg = consumer.receive(200); // the lowest number of ms to receive a message was 36ms
+            } else if (timeout == -1) {
+                msg = consumer.receive(); // == msgConsumer.receive(0)
+            } else {
+                msg = consumer.receive(timeout);
+            }
+            return counted(Step.block, msg);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout == 0 ? 200 : timeout);
+        Step step = start;
+        int tries = 0;
+        long parkNanos = MIN_PARK_NANOS;
+        long blockMillis = 1;
+        while (true) {
+            Message msg;
+            switch (step) {
+                case spin:
+                    msg = counted(step, consumer.receiveNoWait());
+                    if (msg == null) {
+                        Thread.onSpinWait();
+                    }
+                    if (++tries == SPIN_TRIES) {
+                        step = Step.yield;
+                        tries = 0;
+                    }
+                    break;
+                case yield:
+                    msg = counted(step, consumer.receiveNoWait());
+                    if (msg == null) {
+                        Thread.yield();
+                    }
+                    if (++tries == YIELD_TRIES) {
+                        step = Step.park;
+                        tries = 0;
+                    }
+                    break;
+                case park:
+                    msg = counted(step, consumer.receiveNoWait());
+                    if (msg == null) {
+                        LockSupport.parkNanos(parkNanos);
+                        parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                    }
+                    if (++tries == PARK_TRIES) {
+                        step = Step.block;
+                    }
+                    break;
+                default:
+                    long remainingMillis = (timeout == -1) ? blockMillis : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    // receive(0) would block forever
+                    msg = counted(step, consumer.receive(Math.max(1, Math.min(blockMillis, remainingMillis))));
+                    blockMillis = Math.min(blockMillis * 2, MAX_BLOCK_MILLIS);
+                    break;
+            }
+            if (msg != null) {
+                return msg;
+            }
+            if (timeout != -1 && System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+        }
+    }
+
+    private Message counted(Step step, Message msg) {
+        attempts[step.ordinal()]++;
+        if (msg != null) {
+            received[step.ordinal()]++;
+        }
+        return msg;
+    }
+
+    void add(ReceiveWaitStrategy other) {
+        for (int i = 0; i < attempts.length; i++) {
+            attempts[i] += other.attempts[i];
+            received[i] += other.received[i];
+        }
+    }
+
+    /**
+     * @return the strategy and for every step how many receive attempts it made and how many messages it got
+     */
+    Hashtable<String, Object> toStatistics() {
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("recv-wait", start.name());
+        for (Step step : Step.values()) {
+            stats.put(step.name(), attempts[step.ordinal()]);
+            stats.put(step.name() + "-received", received[step.ordinal()]);
+        }
+        return stats;
+    }
+}
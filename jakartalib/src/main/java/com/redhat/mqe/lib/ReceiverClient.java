@@ -22,7 +22,19 @@ package com.redhat.mqe.lib;
 import javax.inject.Inject;
 import javax.inject.Named;
 import jakarta.jms.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.redhat.mqe.lib.ClientOptions.*;
 
@@ -37,6 +49,15 @@ public class ReceiverClient extends CoreClient {
     public static final String SLEEP_BEFORE = "before-receive";
 
     private boolean msgListener;
+    private int consumers;
+    private int consumerConnections;
+    private int ackBatchSize;
+    private boolean individualAcknowledge;
+    private long ackInterval;
+    private String recvWaitStrategy;
+    private int replyCacheSize;
+    private double replyCacheIdle;
+    private boolean replyAnonymous;
     private boolean durableSubscriber;
     private String durableSubscriberPrefix = null;
     private boolean unsubscribe = false;
@@ -72,6 +93,18 @@ public class ReceiverClient extends CoreClient {
     protected ClientOptions rcvrOpts;
     private String writeBinaryMessageFile;
     private String writeMessageContentFile;
+    private SegmentedContentStore contentStore;
+    private LatencyRecorder latencyRecorder;
+    private SequenceTracker sequenceTracker;
+    private ThroughputReporter throughputReporter;
+
+    /**
+     * Messages of the count claimed by the consumers, see {@link #reserveMessage()} and {@link #claimListenerMessage()}
+     */
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger receivedMessages = new AtomicInteger();
+    private final CountDownLatch listenerCountReached = new CountDownLatch(1);
+    private volatile long lastReceivedNanos;
 
     @Inject
     protected MessageBrowser messageBrowser;
@@ -100,6 +133,19 @@ public class ReceiverClient extends CoreClient {
         if (options != null) {
             msgCount = Math.max(Integer.parseInt(options.getOption(COUNT).getValue()), 0);
             msgListener = Boolean.parseBoolean(options.getOption(MSG_LISTENER).getValue());
+            consumers = Math.max(1, Integer.parseInt(options.getOption(CONSUMERS).getValue()));
+            if (msgCount > 0) {
+                // every consumer gets to receive at least one message
+                consumers = Math.min(consumers, msgCount);
+            }
+            consumerConnections = Math.max(1, Integer.parseInt(options.getOption(CONSUMER_CONNECTIONS).getValue()));
+            ackBatchSize = Integer.parseInt(options.getOption(ACK_BATCH).getValue());
+            individualAcknowledge = options.getOption(SSN_ACK_MODE).getValue().equals(INDIVIDUAL_ACKNOWLEDGE);
+            ackInterval = Long.parseLong(options.getOption(ACK_INTERVAL).getValue());
+            recvWaitStrategy = options.getOption(RECV_WAIT_STRATEGY).getValue();
+            replyCacheSize = Integer.parseInt(options.getOption(REPLY_CACHE_SIZE).getValue());
+            replyCacheIdle = Double.parseDouble(options.getOption(REPLY_CACHE_IDLE).getValue());
+            replyAnonymous = Boolean.parseBoolean(options.getOption(REPLY_ANONYMOUS).getValue());
             durableSubscriber = Boolean.parseBoolean(options.getOption(DURABLE_SUBSCRIBER).getValue());
             durableSubscriberPrefix = options.getOption(DURABLE_SUBSCRIBER_PREFIX).getValue();
             unsubscribe = Boolean.parseBoolean(options.getOption(UNSUBSCRIBE).getValue());
@@ -123,6 +169,105 @@ public class ReceiverClient extends CoreClient {
             processReplyTo = Boolean.parseBoolean(options.getOption(PROCESS_REPLY_TO).getValue());
             writeBinaryMessageFile = options.getOption(MSG_BINARY_CONTENT_TO_FILE).getValue();
             writeMessageContentFile = options.getOption(MSG_CONTENT_TO_FILE).getValue();
+            latencyRecorder = createLatencyRecorder();
+            if (Boolean.parseBoolean(options.getOption(SEQ_TRACK).getValue())) {
+                sequenceTracker = new SequenceTracker();
+            }
+        }
+    }
+
+    /**
+     * @return new latency recorder configured by the receiver options, or null if latency is not measured
+     */
+    LatencyRecorder createLatencyRecorder() {
+        String latencyLog = rcvrOpts.getOption(LATENCY_LOG).getValue();
+        if (Boolean.parseBoolean(rcvrOpts.getOption(LATENCY_STATS).getValue()) || !latencyLog.isEmpty()) {
+            return new LatencyRecorder(Boolean.parseBoolean(rcvrOpts.getOption(LATENCY_CORRECT_CO).getValue()), latencyLog);
+        }
+        return null;
+    }
+
+    private ReceiveWaitStrategy createReceiveWaitStrategy() {
+        try {
+            return new ReceiveWaitStrategy(recvWaitStrategy, timeout);
+        } catch (IllegalArgumentException e) {
+            LOG.error("Unknown receive wait strategy '" + recvWaitStrategy + "'! Exiting");
+            System.exit(2);
+            return null;
+        }
+    }
+
+    /**
+     * @return store to append message content to, or null when content is written to a file per message
+     */
+    private SegmentedContentStore createContentStore() {
+        String file = writeMessageContentFile.isEmpty() ? writeBinaryMessageFile : writeMessageContentFile;
+        String store = rcvrOpts.getOption(MSG_CONTENT_STORE).getValue();
+        if (file.isEmpty() || store.equals("files")) {
+            return null;
+        }
+        if (!store.equals("segments")) {
+            LOG.error("Unknown message content store '" + store + "'! Exiting");
+            System.exit(2);
+        }
+        long segmentSize = (long) (Double.parseDouble(rcvrOpts.getOption(MSG_CONTENT_SEGMENT_SIZE).getValue()) * 1024 * 1024);
+        try {
+            return new SegmentedContentStore(file, segmentSize);
+        } catch (IOException e) {
+            LOG.error("Error while creating message content store '" + file + "'.");
+            e.printStackTrace();
+            System.exit(1);
+            return null;
+        }
+    }
+
+    ReplySenderCache<Destination, MessageProducer> createReplyCache() {
+        return new ReplySenderCache<>(replyCacheSize, replyCacheIdle, this::close);
+    }
+
+    private void printReplyStatistics(List<ReplySenderCache<Destination, MessageProducer>> replyCaches) {
+        if (!processReplyTo) {
+            return;
+        }
+        ReplySenderCache<Destination, MessageProducer> total = replyCaches.get(0);
+        for (int i = 1; i < replyCaches.size(); i++) {
+            total.add(replyCaches.get(i));
+        }
+        jmsMessageFormatter.printStatistics(total.toStatistics());
+    }
+
+    AckBatch<Message> createAckBatch() {
+        return new AckBatch<>(ackBatchSize, ackInterval);
+    }
+
+    /**
+     * @return true if received messages have to be acknowledged by the client on this session
+     */
+    boolean acknowledgesMessages(Session ssn) throws JMSException {
+        return !ssn.getTransacted() && (individualAcknowledge || ssn.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE);
+    }
+
+    /**
+     * @return true if every message is acknowledged on its own, the "individual" ssn-ack-mode
+     */
+    boolean acknowledgesIndividually() {
+        return individualAcknowledge;
+    }
+
+    /**
+     * Acknowledge a batch of messages. In client acknowledge mode the last message acknowledges
+     * all messages consumed by the session, in individual mode every message is acknowledged.
+     */
+    void acknowledge(List<Message> batch) throws JMSException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (individualAcknowledge) {
+            for (Message msg : batch) {
+                msg.acknowledge();
+            }
+        } else {
+            batch.get(batch.size() - 1).acknowledge();
         }
     }
 
@@ -164,79 +309,488 @@ public class ReceiverClient extends CoreClient {
     }
 
     /**
-     * This method contains logic for consuming messages: - creates Connection - creates Session (transacted vs
-     * non-transacted) - creates MessageConsumer with Destination (topic vs Queue), message selector and support for local
-     * vs non-local transactions - supports synchronous vs asynchronous (message listener) mode - supports transactions
+     * This method contains logic for consuming messages: - creates Connection(s) - creates Session (transacted vs
+     * non-transacted) and MessageConsumer with Destination (topic vs Queue), message selector and support for local
+     * vs non-local transactions for every consumer - supports synchronous vs asynchronous (message listener) mode
+     * - supports transactions.
+     * With more than one consumer, every consumer gets its own session and the consumers receive in parallel,
+     * until all of them together have received the message count.
      */
     void consumeMessage() {
-        Connection conn = createConnection(rcvrOpts);
-        Session ssn = createSession(rcvrOpts, conn, transacted);
+        int connectionCount = Math.max(1, Math.min(consumers, consumerConnections));
+        List<Connection> connections = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            connections.add(createConnection(rcvrOpts));
+        }
+        List<Session> consumerSessions = new ArrayList<>(consumers);
+        throughputReporter = createThroughputReporter(rcvrOpts, jmsMessageFormatter);
+        contentStore = createContentStore();
+        jmsMessageFormatter.startAsyncOutput();
         try {
-            MessageConsumer msgConsumer;
-            if (durableSubscriber && getDestinationType().equals(ConnectionManager.TOPIC_OBJECT)) {
-                createSubscriptionName(durableSubscriberPrefix);
-                msgConsumer = ssn.createDurableSubscriber((Topic) getDestination(), durableSubscriberName, msgSelector, noLocal);
-            } else {
-                msgConsumer = ssn.createConsumer(getDestination(), msgSelector, noLocal);
+            if (consumers > 1 && durableSubscriber && getDestinationType().equals(ConnectionManager.TOPIC_OBJECT)) {
+                LOG.error("Durable subscriber cannot be shared by " + consumers + " consumers. Exiting.");
+                System.exit(2);
+            }
+            List<MessageConsumer> msgConsumers = new ArrayList<>(consumers);
+            for (int i = 0; i < consumers; i++) {
+                Session ssn = createSession(rcvrOpts, connections.get(i % connectionCount), transacted);
+                consumerSessions.add(ssn);
+                msgConsumers.add(createConsumer(ssn));
             }
-            MessageListener msgLsnr = new MessageListenerImpl(this);
 
             if (msgListener) {
-                msgConsumer.setMessageListener(msgLsnr);
+                //===  ASYNC ===
+                consumeWithListeners(connections, consumerSessions, msgConsumers);
+            } else {
+                //=== SYNC ===
+                List<ReceiveLoop> receiveLoops = new ArrayList<>(consumers);
+                for (int i = 0; i < consumers; i++) {
+                    receiveLoops.add(new ReceiveLoop(i, consumerSessions.get(i), msgConsumers.get(i)));
+                }
+                for (Connection conn : connections) {
+                    conn.start();
+                }
+
+                runReceiveLoops(receiveLoops);
+
+                boolean rateLimited = Double.parseDouble(rcvrOpts.getOption(RATE).getValue()) > 0;
+                if (receiveLoops.size() > 1) {
+                    printReceiveStatistics(receiveLoops);
+                } else if (receiveLoops.get(0).rateLimiter != null && rateLimited) {
+                    jmsMessageFormatter.printStatistics(receiveLoops.get(0).rateLimiter.toStatistics());
+                }
+                ReceiveWaitStrategy waitStrategy = receiveLoops.get(0).waitStrategy;
+                if (!waitStrategy.isBlocking()) {
+                    for (int i = 1; i < receiveLoops.size(); i++) {
+                        waitStrategy.add(receiveLoops.get(i).waitStrategy);
+                    }
+                    jmsMessageFormatter.printStatistics(waitStrategy.toStatistics());
+                }
+                List<ReplySenderCache<Destination, MessageProducer>> replyCaches = new ArrayList<>(receiveLoops.size());
+                for (ReceiveLoop receiveLoop : receiveLoops) {
+                    replyCaches.add(receiveLoop.replyCache);
+                }
+                printReplyStatistics(replyCaches);
+                printSequenceStatistics();
+                if (latencyRecorder != null) {
+                    for (ReceiveLoop receiveLoop : receiveLoops) {
+                        latencyRecorder.add(receiveLoop.latencyRecorder);
+                    }
+                    latencyRecorder.report(jmsMessageFormatter);
+                }
+            }
+        } catch (InvalidSelectorException se) {
+            LOG.error("Invalid selector \"{}\" has been specified.", msgSelector);
+            se.printStackTrace();
+            System.exit(2);
+        } catch (JMSException jmse) {
+            LOG.error("Exception while consuming message!");
+            jmse.printStackTrace();
+            System.exit(1);
+        } finally {
+            if (closeSleep > 0) {
+                Utils.sleep((int) closeSleep);
             }
+            for (Session ssn : consumerSessions) {
+                close(ssn);
+            }
+            for (Connection conn : connections) {
+                close(conn);
+            }
+            if (contentStore != null) {
+                try {
+                    contentStore.close();
+                } catch (IOException e) {
+                    LOG.error("Error while closing message content store.");
+                    e.printStackTrace();
+                }
+            }
+            if (throughputReporter != null) {
+                throughputReporter.close();
+            }
+            jmsMessageFormatter.stopAsyncOutput();
+        }
+    }
 
+    /**
+     * Run all the receive loops. Single loop is run directly on the calling thread,
+     * multiple loops get a thread each.
+     *
+     * @param receiveLoops loops to run
+     * @throws JMSException first error which stopped any of the loops
+     */
+    private void runReceiveLoops(List<ReceiveLoop> receiveLoops) throws JMSException {
+        if (receiveLoops.size() == 1) {
+            receiveLoops.get(0).call();
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(receiveLoops.size());
+        try {
+            List<Future<Integer>> results = executor.invokeAll(receiveLoops);
+            for (Future<Integer> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted while waiting for consumers to finish", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JMSException) {
+                throw (JMSException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Print statistics for every consumer and a combined one for all of them.
+     *
+     * @param receiveLoops finished receive loops
+     */
+    private void printReceiveStatistics(List<ReceiveLoop> receiveLoops) {
+        long totalReceived = 0;
+        long longestNanos = 0;
+        for (ReceiveLoop receiveLoop : receiveLoops) {
+            Hashtable<String, Object> stats = new Hashtable<>();
+            stats.put("consumer", receiveLoop.id);
+            stats.put("received", receiveLoop.received);
+            stats.put("duration", receiveLoop.elapsedNanos / 1e9);
+            stats.put("rate", rate(receiveLoop.received, receiveLoop.elapsedNanos));
+            if (receiveLoop.rateLimiter != null) {
+                stats.put("pacing", receiveLoop.rateLimiter.toStatistics());
+            }
+            jmsMessageFormatter.printStatistics(stats);
+            totalReceived += receiveLoop.received;
+            longestNanos = Math.max(longestNanos, receiveLoop.elapsedNanos);
+        }
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("consumers", receiveLoops.size());
+        stats.put("received", totalReceived);
+        stats.put("duration", longestNanos / 1e9);
+        stats.put("rate", rate(totalReceived, longestNanos));
+        jmsMessageFormatter.printStatistics(stats);
+    }
+
+    /**
+     * Reserve one message of the count for a receive call, so that parallel consumers
+     * never receive more than the count together.
+     *
+     * @return false if the whole count has been received or reserved already
+     */
+    private boolean reserveMessage() {
+        if (msgCount == 0) {
+            return true;
+        }
+        if (reserved.incrementAndGet() > msgCount) {
+            reserved.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return reservation of a receive call which did not get a message.
+     */
+    private void releaseMessage() {
+        if (msgCount != 0) {
+            reserved.decrementAndGet();
+        }
+    }
+
+    private MessageConsumer createConsumer(Session ssn) throws JMSException {
+        if (durableSubscriber && getDestinationType().equals(ConnectionManager.TOPIC_OBJECT)) {
+            createSubscriptionName(durableSubscriberPrefix);
+            return ssn.createDurableSubscriber((Topic) getDestination(), durableSubscriberName, msgSelector, noLocal);
+        }
+        return ssn.createConsumer(getDestination(), msgSelector, noLocal);
+    }
+
+    /**
+     * Receive messages pushed to a MessageListener on each of the consumer sessions. Returns when the message
+     * count is reached, or when no message arrived for the timeout (200 ms for timeout 0, never for -1).
+     * The transaction or acknowledgement batches are completed by the listeners, the last batch of
+     * each session after its consumer is closed.
+     */
+    private void consumeWithListeners(List<Connection> connections, List<Session> sessions, List<MessageConsumer> msgConsumers) throws JMSException {
+        List<MessageListenerImpl> listeners = new ArrayList<>(sessions.size());
+        lastReceivedNanos = System.nanoTime();
+        for (int i = 0; i < sessions.size(); i++) {
+            MessageListenerImpl listener = new MessageListenerImpl(this, sessions.get(i), msgConsumers.get(i), txSize, txAction);
+            listeners.add(listener);
+            msgConsumers.get(i).setMessageListener(listener);
+        }
+
+        for (Connection conn : connections) {
             conn.start();
+        }
+        awaitListeners();
+        // returns after listeners in progress have returned
+        for (Connection conn : connections) {
+            conn.stop();
+        }
 
-            //===  ASYNC ===
-            while (msgListener) {
-                Utils.sleep((int) duration);
+        List<ReplySenderCache<Destination, MessageProducer>> replyCaches = new ArrayList<>(sessions.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            listeners.get(i).acknowledgeRemaining();
+            listeners.get(i).getReplyCache().close();
+            replyCaches.add(listeners.get(i).getReplyCache());
+            close(msgConsumers.get(i));
+            if (sessions.get(i).getTransacted()) {
+                LOG.trace("Performing tx-endloop-action " + txEndloopAction);
+                doTransaction(sessions.get(i), txEndloopAction, throughputReporter);
+            }
+            if (latencyRecorder != null) {
+                latencyRecorder.add(listeners.get(i).getLatencyRecorder());
+            }
+        }
+        printReplyStatistics(replyCaches);
+        printSequenceStatistics();
+        if (latencyRecorder != null) {
+            latencyRecorder.report(jmsMessageFormatter);
+        }
+    }
+
+    private void printSequenceStatistics() {
+        if (sequenceTracker != null) {
+            jmsMessageFormatter.printStatistics(sequenceTracker.toStatistics());
+        }
+    }
+
+    private void awaitListeners() {
+        try {
+            if (timeout == -1) {
+                listenerCountReached.await();
+                return;
+            }
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(timeout == 0 ? 200 : timeout);
+            long waitNanos = idleNanos;
+            while (!listenerCountReached.await(waitNanos, TimeUnit.NANOSECONDS)) {
+                long idle = System.nanoTime() - lastReceivedNanos;
+                if (idle >= idleNanos) {
+                    LOG.trace("Did not receive any message!");
+                    return;
+                }
+                waitNanos = idleNanos - idle;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            //=== SYNC ===
+    /**
+     * Claim the next message for a MessageListener.
+     *
+     * @return 1-based number of the message among all listener sessions, 0 if the message count has been reached
+     */
+    int claimListenerMessage() {
+        lastReceivedNanos = System.nanoTime();
+        int number = reserved.incrementAndGet();
+        if (msgCount > 0 && number > msgCount) {
+            return 0;
+        }
+        return number;
+    }
+
+    /**
+     * Process the message delivered to a MessageListener, as the synchronous receive loop does,
+     * and release the waiting receiver after the last message of the count.
+     */
+    void processListenerMessage(Session ssn, Message msg, int number, LatencyRecorder recorder,
+                                ReplySenderCache<Destination, MessageProducer> replyCache) throws JMSException {
+        recordReceived(msg, recorder);
+        writeMessageContent(msg, number - 1);
+        printMessage(rcvrOpts, msg);
+        replyTo(ssn, msg, replyCache);
+    }
+
+    /**
+     * @return true if the message completes the message count
+     */
+    boolean isLastListenerMessage(int number) {
+        return number == msgCount;
+    }
+
+    void listenerMessageCompleted(int number) {
+        if (number == msgCount) {
+            listenerCountReached.countDown();
+        }
+    }
+
+    ThroughputReporter getThroughputReporter() {
+        return throughputReporter;
+    }
+
+    private void writeMessageContent(Message msg, int i) {
+        if (contentStore != null) {
+            try {
+                byte[] content = JmsUtils.getMessageContent(msg);
+                if (content != null) {
+                    contentStore.append(i, content);
+                }
+            } catch (JMSException | IOException e) {
+                LOG.error("Error while writing message " + i + " to content store.");
+                e.printStackTrace();
+            }
+            return;
+        }
+        String file = null;
+        if (!writeBinaryMessageFile.isEmpty()) {
+            file = writeBinaryMessageFile;
+        }
+        if (!writeMessageContentFile.isEmpty()) {
+            file = writeMessageContentFile;
+        }
+        if (file != null) {
+            if (Boolean.parseBoolean(rcvrOpts.getOption(ClientOptions.MSG_CONTENT_STREAM).getValue())) {
+                JmsUtils.streamMessageContentToFile(file, msg, i);
+            } else {
+                JmsUtils.writeMessageContentToFile(file, msg, i);
+            }
+        }
+    }
+
+    /**
+     * Send the message back to its reply-to destination, with a producer from the cache if there is one.
+     * With anonymous replies, one producer without a destination is cached for all reply-to destinations.
+     */
+    private void replyTo(Session ssn, Message msg, ReplySenderCache<Destination, MessageProducer> replyCache) throws JMSException {
+        if (processReplyTo && msg.getJMSReplyTo() != null) {
+            long startNanos = System.nanoTime();
+            Destination replyTo = msg.getJMSReplyTo();
+            Destination producerDestination = replyAnonymous ? null : replyTo;
+            MessageProducer msgProducer = replyCache.get(producerDestination);
+            boolean created = msgProducer == null;
+            if (created) {
+                msgProducer = ssn.createProducer(producerDestination);
+            }
+            boolean cached = !created;
+            try {
+                msg.setJMSReplyTo(null);
+                if (replyAnonymous) {
+                    msgProducer.send(replyTo, msg);
+                } else {
+                    msgProducer.send(msg);
+                }
+                if (created) {
+                    replyCache.put(producerDestination, msgProducer);
+                    cached = true;
+                }
+            } finally {
+                if (!cached) {
+                    // reply failed, the new producer would leak
+                    close(msgProducer);
+                }
+            }
+            replyCache.recordReply(startNanos);
+        }
+    }
+
+    /**
+     * Count the received message in throughput statistics, track its producer sequence,
+     * see {@link SequenceStamp}, and record its end-to-end latency, see {@link LatencyStamp}, if requested.
+     */
+    void recordReceived(Message msg) throws JMSException {
+        recordReceived(msg, latencyRecorder);
+    }
+
+    private void recordReceived(Message msg, LatencyRecorder latencyRecorder) throws JMSException {
+        if (throughputReporter != null) {
+            throughputReporter.recordMessage(JmsUtils.getBodySize(msg));
+        }
+        if (sequenceTracker != null) {
+            String producer = msg.getStringProperty(SequenceStamp.PRODUCER_PROPERTY);
+            Long sequence = msg.propertyExists(SequenceStamp.SEQUENCE_PROPERTY) ? msg.getLongProperty(SequenceStamp.SEQUENCE_PROPERTY) : null;
+            sequenceTracker.record(producer, sequence);
+        }
+        if (latencyRecorder == null) {
+            return;
+        }
+        Long sendNanos = msg.propertyExists(LatencyStamp.SEND_TIME_PROPERTY) ? msg.getLongProperty(LatencyStamp.SEND_TIME_PROPERTY) : null;
+        Long intendedNanos = msg.propertyExists(LatencyStamp.INTENDED_TIME_PROPERTY) ? msg.getLongProperty(LatencyStamp.INTENDED_TIME_PROPERTY) : null;
+        latencyRecorder.record(sendNanos, intendedNanos);
+    }
+
+    private void createSubscriptionName(String customPrefix) {
+        if (durableSubscriberName == null) {
+            UUID uuid = UUID.randomUUID();
+            if (customPrefix == null || customPrefix.isEmpty())
+                durableSubscriberName = "qpid-jms-" + uuid;
+            else
+                durableSubscriberName = customPrefix + uuid;
+        }
+        LOG.debug("DurableSubscriptionName=" + durableSubscriberName);
+    }
+
+    /**
+     * Synchronous receiving loop of a single consumer, owns its session and consumer.
+     * Stops when no message arrives within the timeout, or when the consumers together
+     * have received the message count.
+     */
+    private class ReceiveLoop implements Callable<Integer> {
+        private final int id;
+        private final Session ssn;
+        private final MessageConsumer msgConsumer;
+        private final LatencyRecorder latencyRecorder = createLatencyRecorder();
+        private final AckBatch<Message> ackBatch = createAckBatch();
+        private final ReceiveWaitStrategy waitStrategy = createReceiveWaitStrategy();
+        private final ReplySenderCache<Destination, MessageProducer> replyCache = createReplyCache();
+        private volatile int received;
+        private volatile long elapsedNanos;
+        private volatile RateLimiter rateLimiter;
+
+        ReceiveLoop(int id, Session ssn, MessageConsumer msgConsumer) {
+            this.id = id;
+            this.ssn = ssn;
+            this.msgConsumer = msgConsumer;
+        }
+
+        @Override
+        public Integer call() throws JMSException {
+            long startNanos = System.nanoTime();
             int i = 0;
             Message msg;
 
-            double initialTimestamp = Utils.getTime();
+            // Pace receiving by RATE, or calculate msg-rate from COUNT & DURATION
+            rateLimiter = createRateLimiter(rcvrOpts, (msgCount + consumers - 1) / consumers, consumers);
             do {
+                if (!reserveMessage()) {
+                    acknowledge(ackBatch.drain());
+                    close(msgConsumer);
+                    break;
+                }
+
                 if (durationMode.equals(SLEEP_BEFORE)) {
                     LOG.trace("Sleeping before receive");
-                    Utils.sleepUntilNextIteration(initialTimestamp, msgCount, duration, i + 1);
+                    if (rateLimiter != null) {
+                        rateLimiter.await(i + 1);
+                    }
                 }
 
-                if (timeout == 0) {
-                    // TODO JMS SPEC BUG https://java.net/jira/browse/JMS_SPEC-85
-                    // msg = msgConsumer.receiveNoWait();
-                    msg = msgConsumer.receive(200); // the lowest number of ms to receive a message was 36ms
-                } else if (timeout == -1) {
-                    msg = msgConsumer.receive(); // == msgConsumer.receive(0)
+                msg = waitStrategy.receive(msgConsumer);
+                if (msg != null) {
+                    recordReceived(msg, latencyRecorder);
                 } else {
-                    msg = msgConsumer.receive(timeout);
+                    releaseMessage();
                 }
 
                 if (durationMode.equals(SLEEP_AFTER)) {
                     LOG.trace("Sleeping after receive");
-                    Utils.sleepUntilNextIteration(initialTimestamp, msgCount, duration, i + 1);
+                    if (rateLimiter != null) {
+                        rateLimiter.await(i + 1);
+                    }
                 }
 
-                if (ssn.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE && msg != null) {
-                    msg.acknowledge();
+                if (msg != null && acknowledgesMessages(ssn)) {
+                    acknowledge(ackBatch.add(msg));
                 }
 
                 if (msg != null) {
-                    String file = null;
-                    if (!writeBinaryMessageFile.isEmpty()) {
-                        file = writeBinaryMessageFile;
-                    }
-                    if (!writeMessageContentFile.isEmpty()) {
-                        file = writeMessageContentFile;
-                    }
-                    if (file != null) {
-                        if (Boolean.parseBoolean(rcvrOpts.getOption(ClientOptions.MSG_CONTENT_STREAM).getValue())) {
-                            JmsUtils.streamMessageContentToFile(file, msg, i);
-                        } else {
-                            JmsUtils.writeMessageContentToFile(file, msg, i);
-                        }
-                    }
+                    writeMessageContent(msg, receivedMessages.getAndIncrement());
                     i++;
                     printMessage(rcvrOpts, msg);
                 } else {
@@ -246,58 +800,33 @@ public class ReceiverClient extends CoreClient {
                 //=== TRANSACTION ===
                 if (ssn.getTransacted() && txSize != 0) {
                     if (i % txSize == 0) {
-                        doTransaction(ssn, txAction);
+                        doTransaction(ssn, txAction, throughputReporter);
 
                         if (durationMode.equals(SLEEP_AFTER_TX_ACTION)) {
                             LOG.trace("Sleeping after transaction");
-                            Utils.sleepUntilNextIteration(initialTimestamp, msgCount, duration, i + 1);
+                            if (rateLimiter != null) {
+                                rateLimiter.await(i + 1);
+                            }
                         }
                     }
                 }
 
                 //=== REPLY TO ===
-                if (processReplyTo && msg != null && msg.getJMSReplyTo() != null) {
-                    MessageProducer msgProducer = ssn.createProducer(msg.getJMSReplyTo());
-                    msg.setJMSReplyTo(null);
-                    msgProducer.send(msg);
-                    close(msgProducer);
-                }
-
-                if (i == msgCount) {
-                    close(msgConsumer);
-                    break; // or timeout
+                if (msg != null) {
+                    replyTo(ssn, msg, replyCache);
                 }
             } while (msg != null);
+            acknowledge(ackBatch.drain());
+            replyCache.close();
 
             if (ssn.getTransacted()) {
                 LOG.trace("Performing tx-endloop-action " + txEndloopAction);
-                doTransaction(ssn, txEndloopAction);
-            }
-        } catch (InvalidSelectorException se) {
-            LOG.error("Invalid selector \"{}\" has been specified.", msgSelector);
-            se.printStackTrace();
-            System.exit(2);
-        } catch (JMSException jmse) {
-            LOG.error("Exception while consuming message!");
-            jmse.printStackTrace();
-            System.exit(1);
-        } finally {
-            if (closeSleep > 0) {
-                Utils.sleep((int) closeSleep);
+                doTransaction(ssn, txEndloopAction, throughputReporter);
             }
-            close(ssn);
-            close(conn);
-        }
-    }
 
-    private void createSubscriptionName(String customPrefix) {
-        if (durableSubscriberName == null) {
-            UUID uuid = UUID.randomUUID();
-            if (customPrefix == null || customPrefix.isEmpty())
-                durableSubscriberName = "qpid-jms-" + uuid;
-            else
-                durableSubscriberName = customPrefix + uuid;
+            received = i;
+            elapsedNanos = System.nanoTime() - startNanos;
+            return i;
         }
-        LOG.debug("DurableSubscriptionName=" + durableSubscriberName);
     }
 }
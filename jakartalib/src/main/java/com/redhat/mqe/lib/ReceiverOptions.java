@@ -46,6 +46,7 @@ public class ReceiverOptions extends ClientOptions {
             new Option(COUNT, "c", "MESSAGES", "0", "read c messages, then exit (default 0 for all messages)"),
             new Option(DURATION, "d", "DURATION", "0", "message actions total duration in seconds (defines msg-rate together with count)"),
             new Option(LOG_MSGS, "", "LOGMSGFMT", "upstream", "message[s] reporting style (dict|body|upstream|none)"),
+            new Option(LOG_MSGS_SAMPLE, "", "N", "1", "report only every Nth message"),
             new Option(LOG_STATS, "", "LEVEL", "upstream", "report various statistic/debug information"),
             new Option(OUT, "", "FORMAT", "repr", "message[s] reporting format (repr|json)"),
             new Option(TX_SIZE, "", "TXBSIZE", "0", "transactional mode: batch message count size (negative skips tx-action before exit)"),
@@ -53,8 +54,20 @@ public class ReceiverOptions extends ClientOptions {
             new Option(TX_ENDLOOP_ACTION, "", "TXACTION", "None", "transactional action after sending all messages in loop (commit|rollback|recover|None)"),
             new Option(DURATION_MODE, "", "VALUE", ReceiverClient.SLEEP_AFTER, "specifies where to wait (" + ReceiverClient.SLEEP_BEFORE
                 + "/" + ReceiverClient.SLEEP_AFTER + "/" + ReceiverClient.SLEEP_AFTER_ACTION + "/" + ReceiverClient.SLEEP_AFTER_TX_ACTION + ")"),
+            new Option(RATE, "", "MSGS_PER_SEC", "0", "pace message actions to given rate per second, overrides duration (0 disables)"),
+            new Option(RATE_BURST, "", "COUNT", "1", "how many messages may be handled back-to-back to catch up with the rate"),
+            new Option(REPORT_INTERVAL, "", "SECONDS", "0", "print throughput statistics every SECONDS and a summary at exit (0 disables)"),
+            new Option(LATENCY_STATS, "", "ENABLED", "false", "report end-to-end latency percentiles of messages stamped by sender"),
+            new Option(LATENCY_LOG, "", "FILEPATH", "", "write end-to-end latency as HdrHistogram log into given file (implies latency-stats)"),
+            new Option(LATENCY_CORRECT_CO, "", "ENABLED", "false", "measure latency from intended send time of rate limited sender (corrects coordinated omission)"),
+            new Option(SEQ_TRACK, "", "ENABLED", "false", "report lost, duplicate and out of order messages stamped by sender with seq-stamp"),
             new Option(SYNC_MODE, "", "SYNCMODE", "action", "synchronization mode: none/session/action/persistent/transient"),
             new Option(MSG_LISTENER, "", "ENABLED", "false", "receive messages using a MessageListener"),
+            new Option(CONSUMERS, "", "COUNT", "1", "number of consumers receiving in parallel, each on its own session (count is shared between them)"),
+            new Option(CONSUMER_CONNECTIONS, "", "COUNT", "1", "number of connections the consumers are spread over"),
+            new Option(RECV_WAIT_STRATEGY, "", "STRATEGY", "block", "how to wait for a message, escalating from spin over yield and park to block (spin|yield|park|block)"),
+            new Option(ACK_BATCH, "", "COUNT", "1", "with client/individual ack mode, acknowledge after this many messages (0 for no limit)"),
+            new Option(ACK_INTERVAL, "", "MS", "0", "with client/individual ack mode, acknowledge when the oldest unacknowledged message waited this long (0 for no limit)"),
             new Option(DURABLE_SUBSCRIBER, "", "ENABLED", "false", "create durable subscription to topic"),
             new Option(UNSUBSCRIBE, "", "UNSUBSCRIBE", "false", "unsubscribe durable subscriptor with given name (provide " + DURABLE_SUBSCRIBER_NAME + ")"),
             new Option(DURABLE_SUBSCRIBER_PREFIX, "", "PREFIX", "", "prefix to use to identify this connection subscriber"),
@@ -65,8 +78,13 @@ public class ReceiverOptions extends ClientOptions {
             new Option(CAPACITY, "", "CAPACITY", "-1", "sender|receiver capacity (no effect in jms atm)"),
             new Option(BROWSER, "", "ENABLED", "false", "if true, browse messages instead of reading"),
             new Option(PROCESS_REPLY_TO, "", null, "", "whether to process reply to (true) or ignore it"),
+            new Option(REPLY_CACHE_SIZE, "", "COUNT", "16", "number of reply-to producers kept open for --process-reply-to (0 closes them after every reply)"),
+            new Option(REPLY_CACHE_IDLE, "", "SECONDS", "60", "close cached reply-to producers not used for this long (0 never)"),
+            new Option(REPLY_ANONYMOUS, "", "ENABLED", "false", "send all replies with a single anonymous producer"),
             new Option(MSG_BINARY_CONTENT_TO_FILE, "", "FILEPATH", "", "write binary data to provided file with prefix"),
-            new Option(MSG_CONTENT_TO_FILE, "", "FILEPATH", "", "write message content to provided file with prefix")
+            new Option(MSG_CONTENT_TO_FILE, "", "FILEPATH", "", "write message content to provided file with prefix"),
+            new Option(MSG_CONTENT_STORE, "", "STORE", "files", "how to write message content to file, 'files' (a file per message) or 'segments' (append to segment files with an index)"),
+            new Option(MSG_CONTENT_SEGMENT_SIZE, "", "MIB", "256", "size of a segment file for --msg-content-store segments")
         ));
 //    receiverDefaultOptions.put("forever", "false"); // drain only option
 //    receiverDefaultOptions.put("action", "acknowledge"); // acknowledge, reject, release, noack
@@ -24,7 +24,14 @@ import com.redhat.mqe.lib.message.MessageProvider;
 import javax.inject.Inject;
 import javax.inject.Named;
 import jakarta.jms.*;
+import java.util.ArrayList;
+import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * SenderClient is able to send various messages with wide options
@@ -38,6 +45,7 @@ public class SenderClient extends CoreClient {
     public static final String BEFORE_SEND = "before-send";
     public static final String AFTER_SEND = "after-send";
     public static final String AFTER_SEND_TX_ACTION = "after-send-tx-action";
+    private ThroughputReporter throughputReporter;
 
 
     @Inject
@@ -55,12 +63,26 @@ public class SenderClient extends CoreClient {
      * Initial method to start the client.
      * Initialization of content, properties and everything about
      * how to send message is done/initiated by this method.
-     * Contains the main sending loop method.
+     * With more than one producer, every producer gets its own session
+     * and send loop, and the loops run in parallel.
      */
     public void startClient() {
         ClientOptions senderOptions = this.getClientOptions();
         setGlobalClientOptions(senderOptions);
-        Connection connection = this.createConnection(senderOptions);
+        int count = Integer.parseInt(senderOptions.getOption(ClientOptions.COUNT).getValue());
+        int producers = Math.max(1, Integer.parseInt(senderOptions.getOption(ClientOptions.PRODUCERS).getValue()));
+        if (count > 0) {
+            // every producer has to send at least one message, count 0 would mean "forever"
+            producers = Math.min(producers, count);
+        }
+        int maxInFlight = Integer.parseInt(senderOptions.getOption(ClientOptions.MAX_IN_FLIGHT).getValue());
+        boolean rateLimited = Double.parseDouble(senderOptions.getOption(ClientOptions.RATE).getValue()) > 0;
+        int connectionCount = Math.max(1, Math.min(producers,
+            Integer.parseInt(senderOptions.getOption(ClientOptions.PRODUCER_CONNECTIONS).getValue())));
+        List<Connection> producerConnections = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            producerConnections.add(this.createConnection(senderOptions));
+        }
 
         // Transactions support
         int transactionSize = 0;
@@ -75,58 +97,273 @@ public class SenderClient extends CoreClient {
             }
         }
 
+        throughputReporter = createThroughputReporter(senderOptions, jmsMessageFormatter);
+        jmsMessageFormatter.startAsyncOutput();
+        try {
+            List<SendLoop> sendLoops = new ArrayList<>(producers);
+            int firstMessage = 0;
+            for (int i = 0; i < producers; i++) {
+                Connection connection = producerConnections.get(i % connectionCount);
+                Session session = (transaction == null || transaction.equals("none")) ?
+                    this.createSession(senderOptions, connection, false) : this.createSession(senderOptions, connection, true);
+                MessageProducer msgProducer = session.createProducer(this.getDestination());
+                setMessageProducer(senderOptions, msgProducer);
+                // split count between producers, first few of them take the remainder
+                int loopCount = (count == 0) ? 0 : count / producers + (i < count % producers ? 1 : 0);
+                sendLoops.add(new SendLoop(i, session, msgProducer, maxInFlight, loopCount, producers, firstMessage, transaction, transactionSize));
+                firstMessage += loopCount;
+            }
+            for (Connection connection : producerConnections) {
+                connection.start();
+            }
+
+            runSendLoops(sendLoops);
+
+            if (sendLoops.size() > 1 || maxInFlight > 0 || rateLimited) {
+                printSendStatistics(sendLoops);
+            }
+            long failed = 0;
+            for (SendLoop sendLoop : sendLoops) {
+                failed += (sendLoop.sendWindow == null) ? 0 : sendLoop.sendWindow.getFailed();
+            }
+            if (failed > 0) {
+                throw new JMSException(failed + " asynchronously sent message(s) failed");
+            }
+        } catch (JMSException | IllegalArgumentException jmse) {
+            LOG.error("Error while sending a message! {}", jmse.getMessage());
+            jmse.printStackTrace();
+            System.exit(1);
+        } finally {
+            double closeSleep = Double.parseDouble(this.getClientOptions().getOption(ClientOptions.CLOSE_SLEEP).getValue());
+            closeConnObjects(this, closeSleep);
+            for (Connection connection : producerConnections) {
+                this.close(connection);
+            }
+            if (throughputReporter != null) {
+                throughputReporter.close();
+            }
+            jmsMessageFormatter.stopAsyncOutput();
+        }
+    }
+
+    /**
+     * Run all the send loops. Single loop is run directly on the calling thread,
+     * multiple loops get a thread each.
+     *
+     * @param sendLoops loops to run
+     * @throws JMSException first error which stopped any of the loops
+     */
+    private void runSendLoops(List<SendLoop> sendLoops) throws JMSException {
+        if (sendLoops.size() == 1) {
+            sendLoops.get(0).call();
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(sendLoops.size());
+        try {
+            List<Future<Integer>> results = executor.invokeAll(sendLoops);
+            for (Future<Integer> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted while waiting for producers to finish", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JMSException) {
+                throw (JMSException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Print statistics for every producer and a combined one for all of them.
+     * Asynchronous sends also report acknowledged and failed messages and ack latency,
+     * rate limited sends report how far behind the schedule they fell.
+     *
+     * @param sendLoops finished send loops
+     */
+    private void printSendStatistics(List<SendLoop> sendLoops) {
+        long totalSent = 0;
+        long longestNanos = 0;
+        long acknowledged = 0;
+        long failed = 0;
+        LatencyStatistics ackLatency = new LatencyStatistics();
+        long maxLagNanos = 0;
+        for (SendLoop sendLoop : sendLoops) {
+            Hashtable<String, Object> stats = new Hashtable<>();
+            stats.put("producer", sendLoop.id);
+            stats.put("sent", sendLoop.sent);
+            stats.put("duration", sendLoop.elapsedNanos / 1e9);
+            stats.put("rate", rate(sendLoop.sent, sendLoop.elapsedNanos));
+            if (sendLoop.sendWindow != null) {
+                stats.put("acknowledged", sendLoop.sendWindow.getAcknowledged());
+                stats.put("failed", sendLoop.sendWindow.getFailed());
+                acknowledged += sendLoop.sendWindow.getAcknowledged();
+                failed += sendLoop.sendWindow.getFailed();
+                ackLatency.add(sendLoop.sendWindow.getAckLatency());
+            }
+            if (sendLoop.rateLimiter != null) {
+                stats.put("pacing", sendLoop.rateLimiter.toStatistics());
+                maxLagNanos = Math.max(maxLagNanos, sendLoop.rateLimiter.getMaxLagNanos());
+            }
+            if (sendLoops.size() > 1) {
+                jmsMessageFormatter.printStatistics(stats);
+            }
+            totalSent += sendLoop.sent;
+            longestNanos = Math.max(longestNanos, sendLoop.elapsedNanos);
+        }
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("producers", sendLoops.size());
+        stats.put("sent", totalSent);
+        stats.put("duration", longestNanos / 1e9);
+        stats.put("rate", rate(totalSent, longestNanos));
+        if (sendLoops.get(0).sendWindow != null) {
+            stats.put("acknowledged", acknowledged);
+            stats.put("failed", failed);
+            stats.put("ack-latency", ackLatency.toStatistics());
+        }
+        if (sendLoops.get(0).rateLimiter != null) {
+            stats.put("max-lag", maxLagNanos / 1e6);
+        }
+        jmsMessageFormatter.printStatistics(stats);
+    }
+
+    /**
+     * Send single message. Subclasses may override this to handle
+     * provider specific send failures.
+     *
+     * @param msgProducer producer to send the message with
+     * @param message     message to be sent
+     * @param msgCounter  number of messages sent by this producer so far
+     * @return true if the message was sent, false if it should be created and sent again
+     * @throws JMSException if sending fails
+     */
+    protected boolean sendMessage(MessageProducer msgProducer, Message message, int msgCounter) throws JMSException {
         try {
-            Session session = (transaction == null || transaction.equals("none")) ?
-                this.createSession(senderOptions, connection, false) : this.createSession(senderOptions, connection, true);
-            connection.start();
-            MessageProducer msgProducer = session.createProducer(this.getDestination());
-            setMessageProducer(senderOptions, msgProducer);
-
-            // Calculate msg-rate from COUNT & DURATION
-            double initialTimestamp = Utils.getTime();
-            int count = Integer.parseInt(senderOptions.getOption(ClientOptions.COUNT).getValue());
-            double duration = Double.parseDouble(senderOptions.getOption(ClientOptions.DURATION).getValue());
-            duration *= 1000;  // convert to milliseconds
+            msgProducer.send(message);
+        } catch (JMSException | RuntimeException e) {
+            if (resendFailedMessage(e)) {
+                return false;
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Decide whether a message should be sent again after its send failed. Used by synchronous sends,
+     * and by asynchronous sends from the thread completing the send. Subclasses may override this
+     * to handle provider specific send failures.
+     *
+     * @param e reason of the failure
+     * @return true if the message should be sent again, false if the send failed
+     */
+    protected boolean resendFailedMessage(Exception e) {
+        if (hasCause(e, "org.apache.qpid.jms.provider.exceptions.ProviderDeliveryReleasedException")) {
+            String onRelease = getClientOptions().getOption(ClientOptions.ON_RELEASE).getValue();
+            LOG.trace(String.format("Message released [action: %s]", onRelease));
+            if (onRelease.equals("retry")) {
+                if (throughputReporter != null) {
+                    throughputReporter.recordError();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the exception or any of its causes is of the named class
+     */
+    protected static boolean hasCause(Throwable e, String className) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getClass().getName().equals(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Main sending loop of a single producer, owns its session and producer.
+     * Sends synchronously, or asynchronously through sendWindow if there is one.
+     * An asynchronously sent message is printed once its send completes.
+     */
+    private class SendLoop implements Callable<Integer>, AsyncSendWindow.Callback {
+        private final int id;
+        private final Session session;
+        private final MessageProducer msgProducer;
+        private final AsyncSendWindow sendWindow;
+        private final int count;
+        private final int loops;
+        private final int firstMessage;
+        private final String transaction;
+        private final int transactionSize;
+        private volatile int sent;
+        private volatile long elapsedNanos;
+        private volatile RateLimiter rateLimiter;
+
+        SendLoop(int id, Session session, MessageProducer msgProducer, int maxInFlight,
+                 int count, int loops, int firstMessage, String transaction, int transactionSize) {
+            this.id = id;
+            this.session = session;
+            this.msgProducer = msgProducer;
+            this.sendWindow = (maxInFlight > 0) ? new AsyncSendWindow(maxInFlight, throughputReporter, this) : null;
+            this.count = count;
+            this.loops = loops;
+            this.firstMessage = firstMessage;
+            this.transaction = transaction;
+            this.transactionSize = transactionSize;
+        }
+
+        @Override
+        public Integer call() throws JMSException {
+            ClientOptions senderOptions = getClientOptions();
+            long startNanos = System.nanoTime();
+
+            // Pace sending by RATE, or calculate msg-rate from COUNT & DURATION
+            rateLimiter = createRateLimiter(senderOptions, count, loops);
 
             final MessageProvider messageProvider = new MessageProvider(senderOptions, session).newInstance();
 
             int msgCounter = 0;
             String durationMode = senderOptions.getOption(ClientOptions.DURATION_MODE).getValue();
+            boolean latencyStamp = Boolean.parseBoolean(senderOptions.getOption(ClientOptions.LATENCY_STAMP).getValue());
+            String producerId = Boolean.parseBoolean(senderOptions.getOption(ClientOptions.SEQ_STAMP).getValue()) ? SequenceStamp.newProducerId() : null;
             while (true) {
                 // Create message and fill body with data (content)
-                Message message = messageProvider.provideMessage(msgCounter);
+                Message message = messageProvider.provideMessage(firstMessage + msgCounter);
 
                 // sleep for given amount of time, defined by msg-rate "before-send"
                 if (durationMode.equals(BEFORE_SEND)) {
                     LOG.trace("Sleeping before send");
-                    Utils.sleepUntilNextIteration(initialTimestamp, count, duration, msgCounter + 1);
+                    pace(msgCounter + 1);
                 }
 
-                // Send messages
-                try {
-                    msgProducer.send(message);
-                } catch (Exception e) {
-                    if (e.getCause().getClass().getName().equals("org.apache.qpid.jms.provider.exceptions.ProviderDeliveryReleasedException")) {
-                        String onRelease = senderOptions.getOption(ClientOptions.ON_RELEASE).getValue();
-                        LOG.trace(String.format("Message released [action: %s]", onRelease));
-                        switch (onRelease) {
-                            case "fail":
-                                throw e;
-                            case "retry":
-                                continue;
-                        }
-                    }// Preserve original behavior
-                    throw e;
+                if (producerId != null) {
+                    message.setStringProperty(SequenceStamp.PRODUCER_PROPERTY, producerId);
+                    message.setLongProperty(SequenceStamp.SEQUENCE_PROPERTY, msgCounter);
                 }
-                msgCounter++;
-                // Makes message body read only from write only mode
-                if (message instanceof StreamMessage) {
-                    ((StreamMessage) message).reset();
+                if (latencyStamp) {
+                    stampMessage(message, firstMessage + msgCounter, msgCounter + 1);
                 }
-                if (message instanceof BytesMessage) {
-                    ((BytesMessage) message).reset();
+
+                // Send messages, the message must not be accessed while an asynchronous send is in progress
+                if (sendWindow != null) {
+                    sendWindow.send(msgProducer, message);
+                } else if (sendMessage(msgProducer, message, msgCounter)) {
+                    messageSent(message);
+                } else {
+                    continue;
                 }
-                printMessage(senderOptions, message);
+                msgCounter++;
+                sent = msgCounter;
 
                 // close streaming message source if that is what we are doing
                 try {
@@ -138,37 +375,87 @@ public class SenderClient extends CoreClient {
                 // sleep for given amount of time, defined by msg-rate "after-send-before-tx-action"
                 if (durationMode.equals(AFTER_SEND)) {
                     LOG.trace("Sleeping after send");
-                    Utils.sleepUntilNextIteration(initialTimestamp, count, duration, msgCounter + 1);
+                    pace(msgCounter + 1);
                 }
 
                 // TX support
                 if (transaction != null && transactionSize != 0) {
                     if (msgCounter % transactionSize == 0) {
                         // Do transaction action
-                        doTransaction(session, transaction);
+                        drainSendWindow();
+                        doTransaction(session, transaction, throughputReporter);
                     }
                 }
                 // sleep for given amount of time, defined by msg-rate "after-send-after-tx-action"
                 if (durationMode.equals(AFTER_SEND_TX_ACTION)) {
                     LOG.trace("Sleeping after send & tx action");
-                    Utils.sleepUntilNextIteration(initialTimestamp, count, duration, msgCounter + 1);
+                    pace(msgCounter + 1);
                 }
                 if (count == 0) continue;
                 if (msgCounter == count) break;
             }
 
-            // Finish transaction with sending of the rest messages
+            // Wait for completion of all async sends, then finish transaction with sending of the rest messages
+            drainSendWindow();
             if (transaction != null) {
-                doTransaction(session, senderOptions.getOption(ClientOptions.TX_ENDLOOP_ACTION).getValue());
+                doTransaction(session, senderOptions.getOption(ClientOptions.TX_ENDLOOP_ACTION).getValue(), throughputReporter);
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+            return msgCounter;
+        }
+
+        @Override
+        public void completed(Message message) {
+            try {
+                messageSent(message);
+            } catch (JMSException e) {
+                LOG.error("Error while printing sent message!");
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public boolean resend(Message message, Exception exception) {
+            return resendFailedMessage(exception);
+        }
+
+        private void messageSent(Message message) throws JMSException {
+            // Makes message body read only from write only mode
+            if (message instanceof StreamMessage) {
+                ((StreamMessage) message).reset();
+            }
+            if (message instanceof BytesMessage) {
+                ((BytesMessage) message).reset();
+            }
+            if (throughputReporter != null) {
+                throughputReporter.recordMessage(JmsUtils.getBodySize(message));
+            }
+            printMessage(getClientOptions(), message);
+        }
+
+        private void pace(int iteration) {
+            if (rateLimiter != null) {
+                rateLimiter.await(iteration);
+            }
+        }
+
+        /**
+         * Set latency stamp properties, see {@link LatencyStamp}. Send time is taken last, just before the send.
+         *
+         * @param iteration rate limiter iteration the message was scheduled for
+         */
+        private void stampMessage(Message message, long sequence, int iteration) throws JMSException {
+            message.setLongProperty(LatencyStamp.SEQUENCE_PROPERTY, sequence);
+            if (rateLimiter != null) {
+                message.setLongProperty(LatencyStamp.INTENDED_TIME_PROPERTY, LatencyStamp.toEpochNanos(rateLimiter.intendedNanos(iteration)));
+            }
+            message.setLongProperty(LatencyStamp.SEND_TIME_PROPERTY, LatencyStamp.epochNanos());
+        }
+
+        private void drainSendWindow() throws JMSException {
+            if (sendWindow != null) {
+                sendWindow.drain(msgProducer);
             }
-        } catch (JMSException | IllegalArgumentException jmse) {
-            LOG.error("Error while sending a message! {}", jmse.getMessage());
-            jmse.printStackTrace();
-            System.exit(1);
-        } finally {
-            double closeSleep = Double.parseDouble(this.getClientOptions().getOption(ClientOptions.CLOSE_SLEEP).getValue());
-            closeConnObjects(this, closeSleep);
-            this.close(connection);
         }
     }
 
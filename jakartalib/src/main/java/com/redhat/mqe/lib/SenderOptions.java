@@ -43,6 +43,9 @@ public class SenderOptions extends ClientOptions {
             new Option(COUNT, "c", "MESSAGES", "1", "stop after count messages have been sent, zero disables"),
             new Option(DURATION, "d", "DURATION", "0", "message actions total duration in seconds (defines msg-rate together with count)"),
             new Option(DURATION_MODE, "", "VALUE", "after-send", "specifies where to wait (before-send/after-send/after-send-tx-action"),
+            new Option(RATE, "", "MSGS_PER_SEC", "0", "pace message actions to given rate per second, overrides duration (0 disables)"),
+            new Option(RATE_BURST, "", "COUNT", "1", "how many messages may be handled back-to-back to catch up with the rate"),
+            new Option(REPORT_INTERVAL, "", "SECONDS", "0", "print throughput statistics every SECONDS and a summary at exit (0 disables)"),
             new Option(MSG_ID, "i", "MSG_ID", "", "use the supplied id instead of generating one. use 'noid' to not generate IDs"),
             new Option(PROPERTY_TYPE, "", "PTYPE", "String", "specify the type of message property"),
             new Option(MSG_PROPERTY, "", "KEY=PVALUE", "", "specify message property as KEY=VALUE (use '~' instead of '=' for auto-casting)"),
@@ -58,6 +61,7 @@ public class SenderOptions extends ClientOptions {
             new Option(MSG_SUBJECT, "", "SUBJECT", "", "specify message subject"),
             new Option(MSG_DURABLE, "", "MSG_DURABLE", "yes", "send durable messages: yes/no|true/false"),
             new Option(LOG_MSGS, "", "LOGMSGFMT", "upstream", "message[s] reporting style (dict|body|upstream|none)"),
+            new Option(LOG_MSGS_SAMPLE, "", "N", "1", "report only every Nth message"),
             new Option(LOG_STATS, "", "LEVEL", "upstream", "report various statistic/debug information"),
             new Option(OUT, "", "FORMAT", "repr", "message[s] reporting format (repr|json)"),
             new Option(MSG_TTL, "", "TTL", "0", "message time-to-live (ms)"),
@@ -70,6 +74,11 @@ public class SenderOptions extends ClientOptions {
             new Option(TX_SIZE, "", "TXSIZE", "0", "transactional mode: batch message count size"),
             new Option(TX_ACTION, "", "TXACTION", "commit", "transactional action at the end of tx batch (commit|rollback|recover|None)"),
             new Option(TX_ENDLOOP_ACTION, "", "TXACTION", "None", "transactional action after sending all messages in loop (commit|rollback|recover|None)"),
+            new Option(PRODUCERS, "", "COUNT", "1", "number of producers sending in parallel, each on its own session (count is split between them)"),
+            new Option(PRODUCER_CONNECTIONS, "", "COUNT", "1", "number of connections the producers are spread over"),
+            new Option(MAX_IN_FLIGHT, "", "COUNT", "0", "send asynchronously, with at most COUNT messages waiting for completion (0 sends synchronously)"),
+            new Option(LATENCY_STAMP, "", "ENABLED", "false", "stamp messages with send time for end-to-end latency measurement by receiver"),
+            new Option(SEQ_STAMP, "", "ENABLED", "false", "stamp messages with producer id and sequence number for loss and duplicate detection by receiver"),
             // TODO
             new Option(SYNC_MODE, "", "SYNCMODE", "action", "synchronization mode: none/session/action/persistent/transient"),
             new Option(CAPACITY, "", "CAPACITY", "-1", "sender|receiver capacity (no effect in jms atm)")
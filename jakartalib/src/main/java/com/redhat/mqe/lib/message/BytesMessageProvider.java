@@ -33,6 +33,10 @@ public class BytesMessageProvider extends MessageProvider implements AutoCloseab
      * most recent message's content, for closing streamed message content
      */
     private Object content;
+    /**
+     * file content read for the first message, reused unless the content is streamed
+     */
+    private byte[] payload;
 
     public BytesMessageProvider(ClientOptions senderOptions, Session session) {
         super(senderOptions, session);
@@ -49,9 +53,10 @@ public class BytesMessageProvider extends MessageProvider implements AutoCloseab
         BytesMessage bytesMessage = session.createBytesMessage();
 
         LOG.debug("Filling ByteMessage with binary data");
-        content = messageContent();
+        content = payload != null ? payload : messageContent();
         if (content instanceof byte[]) {
-            bytesMessage.writeBytes((byte[]) content);
+            payload = (byte[]) content;
+            bytesMessage.writeBytes(payload);
         } else if (content instanceof InputStream) {
             final String jmsAmqInputStream = "JMS_AMQ_InputStream";
             bytesMessage.setObjectProperty(jmsAmqInputStream, content);
@@ -33,6 +33,7 @@ import java.util.List;
 public class MapMessageProvider extends MessageProvider {
     private final ClientOptions senderOptions;
     private final Session session;
+    private List<MessageTemplate.Setter<MapMessage>> items;
 
     public MapMessageProvider(ClientOptions senderOptions, Session session) {
         super(senderOptions, session);
@@ -47,61 +48,63 @@ public class MapMessageProvider extends MessageProvider {
 
     @Override
     public MapMessage createTypedMessage() throws JMSException {
+        if (items == null) {
+            items = compileMapItems(senderOptions);
+        }
         MapMessage mapMessage = session.createMapMessage();
-        fillMapMessage(senderOptions, mapMessage);
+        for (MessageTemplate.Setter<MapMessage> item : items) {
+            item.apply(mapMessage);
+        }
         return mapMessage;
     }
 
     /**
-     * Fill MapMessage with a data provided by user input as *content*.
+     * Parse the data provided by user input as *content* into setters filling a MapMessage.
      *
      * @param senderOptions sender options
-     * @param mapMessage    message to be filled with data
+     * @return setters for the map items, in the order they were given
      */
-    private void fillMapMessage(ClientOptions senderOptions, MapMessage mapMessage) throws JMSException {
+    private List<MessageTemplate.Setter<MapMessage>> compileMapItems(ClientOptions senderOptions) {
         LOG.trace("set MSG_CONTENT_MAP_ITEM");
 
+        List<MessageTemplate.Setter<MapMessage>> setters = new ArrayList<>();
         List<String> values = senderOptions.getOption(ClientOptions.MSG_CONTENT_MAP_ITEM).getParsedValuesList();
         if (isEmptyMessage(values)) {
-            return;
+            return setters;
         }
-        List<Content> content = new ArrayList<>();
         for (String parsedItem : values) {
-            content.add(new Content(globalContentType(), parsedItem, true));
-        }
-
-        for (Content c : content) {
+            Content c = new Content(globalContentType(), parsedItem, true);
             LOG.trace("Filling MapMessage with: " + c.getValue() + " class=" + c.getType().getName());
-            if (Utils.CLASSES.contains(c.getType())) {
-                switch (c.getType().getSimpleName()) {
-                    case "Integer":
-                        mapMessage.setInt(c.getKey(), (Integer) c.getValue());
-                        break;
-                    case "Long":
-                        mapMessage.setLong(c.getKey(), (Long) c.getValue());
-                        break;
-                    case "Float":
-                        mapMessage.setFloat(c.getKey(), (Float) c.getValue());
-                        break;
-                    case "Double":
-                        mapMessage.setDouble(c.getKey(), (Double) c.getValue());
-                        break;
-                    case "Boolean":
-                        mapMessage.setBoolean(c.getKey(), (Boolean) c.getValue());
-                        break;
-                    case "String":
-                        mapMessage.setString(c.getKey(), (String) c.getValue());
-                        break;
-                    default:
-                        LOG.error("Sending unknown type element!");
-                        mapMessage.setObject(c.getKey(), c.getValue());
-                        break;
-                }
-                mapMessage.setObject(c.getKey(), c.getValue());
-
-            } else {
+            if (!Utils.CLASSES.contains(c.getType())) {
                 throw new MessagingException("Unknown data type in message Content. Do not know how to send it. Type=" + c.getType());
             }
+            final String key = c.getKey();
+            final Object value = c.getValue();
+            switch (c.getType().getSimpleName()) {
+                case "Integer":
+                    setters.add(m -> m.setInt(key, (Integer) value));
+                    break;
+                case "Long":
+                    setters.add(m -> m.setLong(key, (Long) value));
+                    break;
+                case "Float":
+                    setters.add(m -> m.setFloat(key, (Float) value));
+                    break;
+                case "Double":
+                    setters.add(m -> m.setDouble(key, (Double) value));
+                    break;
+                case "Boolean":
+                    setters.add(m -> m.setBoolean(key, (Boolean) value));
+                    break;
+                case "String":
+                    setters.add(m -> m.setString(key, (String) value));
+                    break;
+                default:
+                    LOG.error("Sending unknown type element!");
+                    setters.add(m -> m.setObject(key, value));
+                    break;
+            }
         }
+        return setters;
     }
 }
@@ -19,20 +19,14 @@
 
 package com.redhat.mqe.lib.message;
 
-import com.redhat.mqe.lib.ClientOptionManager;
 import com.redhat.mqe.lib.ClientOptions;
-import com.redhat.mqe.lib.Content;
-import com.redhat.mqe.lib.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import jakarta.jms.Destination;
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.Session;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.InvalidParameterException;
@@ -42,6 +36,7 @@ public class MessageProvider implements AutoCloseable {
     static final Logger LOG = LoggerFactory.getLogger(MessageProvider.class);
     private final ClientOptions senderOptions;
     private final Session session;
+    private MessageTemplate template;
 
     public MessageProvider(ClientOptions senderOptions, Session session) {
         this.senderOptions = senderOptions;
@@ -81,9 +76,11 @@ public class MessageProvider implements AutoCloseable {
     }
 
     Message createMessage() throws JMSException {
+        if (template == null) {
+            template = new MessageTemplate(senderOptions, session);
+        }
         Message message = createTypedMessage();
-        setMessageProperties(message);
-        setCustomMessageProperties(message);
+        template.apply(message);
         return message;
     }
 
@@ -143,114 +140,6 @@ public class MessageProvider implements AutoCloseable {
         return null;
     }
 
-    /**
-     * Set various JMS (header) properties for this message.
-     *
-     * @param message to set properties for
-     * @return same message with updated properties
-     */
-    Message setMessageProperties(Message message) {
-        try {
-            // Set message ID if provided or use default one
-            if (senderOptions.getOption(ClientOptions.MSG_ID).hasParsedValue()) {
-                final String id = senderOptions.getOption(ClientOptions.MSG_ID).getValue();
-                // producer.setDisableMessageID(true) is called elsewhere
-                if (!id.equals("noid")) {
-                    message.setJMSMessageID(id);
-                }
-            }
-            // Set message Correlation ID
-            if (senderOptions.getOption(ClientOptions.MSG_CORRELATION_ID).hasParsedValue()) {
-                message.setJMSCorrelationID(senderOptions.getOption(ClientOptions.MSG_CORRELATION_ID).getValue());
-            }
-            // Set message User ID
-            if (senderOptions.getOption(ClientOptions.MSG_USER_ID).hasParsedValue()) {
-                message.setStringProperty("JMSXUserID", senderOptions.getOption(ClientOptions.MSG_USER_ID).getValue());
-            }
-            // Set message Subject
-            if (senderOptions.getOption(ClientOptions.MSG_SUBJECT).hasParsedValue()) {
-                // FIXME? message.setJMSType(senderOptions.getOption(ClientOptions.MSG_SUBJECT).getValue());
-                message.setStringProperty("JMS_AMQP_Subject", senderOptions.getOption(ClientOptions.MSG_SUBJECT).getValue());
-            }
-            // Set message reply to destination
-            if (senderOptions.getOption(ClientOptions.MSG_REPLY_TO).hasParsedValue()) {
-                String name = senderOptions.getOption(ClientOptions.MSG_REPLY_TO).getValue();
-                Destination destination;
-                if (name.startsWith(ClientOptionManager.QUEUE_PREFIX)) {
-                    destination = session.createQueue(name.substring(ClientOptionManager.QUEUE_PREFIX.length()));
-                } else if (name.startsWith(ClientOptionManager.TOPIC_PREFIX)) {
-                    destination = session.createTopic(name.substring(ClientOptionManager.TOPIC_PREFIX.length()));
-                } else {
-                    destination = session.createQueue(name);
-                }
-                message.setJMSReplyTo(destination);
-            }
-
-            // Set message type to message content type (some JMS vendors use this internally)
-            if (senderOptions.getOption(ClientOptions.MSG_CONTENT_TYPE).hasParsedValue()) {
-                message.setStringProperty("JMS_AMQP_ContentType", senderOptions.getOption(ClientOptions.MSG_CONTENT_TYPE).getValue());
-            }
-            // Set message priority (4 by default)
-            if (senderOptions.getOption(ClientOptions.MSG_PRIORITY).hasParsedValue()) {
-                message.setJMSPriority(Integer.parseInt(senderOptions.getOption(ClientOptions.MSG_PRIORITY).getValue()));
-            }
-
-            // Set the group the message belongs to
-            if (senderOptions.getOption(ClientOptions.MSG_GROUP_ID).hasParsedValue()) {
-                message.setStringProperty("JMSXGroupID", senderOptions.getOption(ClientOptions.MSG_GROUP_ID).getValue());
-            }
-            // Set relative position of this message within its group
-            if (senderOptions.getOption(ClientOptions.MSG_GROUP_SEQ).hasParsedValue()) {
-                message.setIntProperty("JMSXGroupSeq", Integer.parseInt(senderOptions.getOption(ClientOptions.MSG_GROUP_SEQ).getValue()));
-            }
-
-            // JMS AMQP specific reply-to-group-id mapping
-            if (senderOptions.getOption(ClientOptions.MSG_REPLY_TO_GROUP_ID).hasParsedValue()) {
-                message.setStringProperty("JMS_AMQP_ReplyToGroupID", senderOptions.getOption(ClientOptions.MSG_REPLY_TO_GROUP_ID).getValue());
-            }
-
-        } catch (JMSException e) {
-            e.printStackTrace();
-        }
-        return message;
-    }
-
-    /**
-     * Set custom property values in the JMS header/body.
-     * Setting is done using reflection on Message object and invoking
-     * appropriate setXProperty(String, <primitive-type>).
-     *
-     * @param message message to have properties updated
-     */
-    void setCustomMessageProperties(Message message) {
-        String globalPropertyType = null;
-        if (senderOptions.getOption(ClientOptions.PROPERTY_TYPE).hasParsedValue()) {
-            globalPropertyType = senderOptions.getOption(ClientOptions.PROPERTY_TYPE).getValue();
-        }
-        if (senderOptions.getOption(ClientOptions.MSG_PROPERTY).hasParsedValue()) {
-            List<String> customProperties = senderOptions.getOption(ClientOptions.MSG_PROPERTY).getParsedValuesList();
-            for (String property : customProperties) {
-                // Create new 'content' object for property key=value mapping. It is same as Message Content Map, so we can safely reuse
-                Content propertyContent = new Content(globalPropertyType, property, true);
-                try {
-                    String simpleName = propertyContent.getType().getSimpleName();
-                    if (simpleName.equals("Integer")) {
-                        simpleName = "Int";
-                    }
-                    // Call the appropriate setXProperty(String, <primitive-type>) - complicated with primitive types..
-                    LOG.trace("calling method \"set" + simpleName + "Property()\" for " + property);
-                    Method messageSetXPropertyMethod = Message.class.getMethod("set" + simpleName + "Property",
-                        String.class, Utils.getPrimitiveClass(propertyContent.getType()));
-                    messageSetXPropertyMethod.invoke(message, propertyContent.getKey(), propertyContent.getValue());
-                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-                    LOG.error("Unable to set message property from provided input. Exiting.");
-                    e.printStackTrace();
-                    System.exit(2);
-                }
-            }
-        }
-    }
-
     /**
      * Create message content based on provided input.
      * This method does not care about types. Creation of object Content
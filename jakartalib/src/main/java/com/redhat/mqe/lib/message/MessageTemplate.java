@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib.message;
+
+import com.redhat.mqe.lib.ClientOptionManager;
+import com.redhat.mqe.lib.ClientOptions;
+import com.redhat.mqe.lib.Content;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JMS headers and custom properties from sender options, compiled once into a list of setters.
+ * <p>
+ * Applying the template to a message does no option lookups, value parsing or reflection.
+ */
+class MessageTemplate {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageTemplate.class);
+
+    /**
+     * Sets one precomputed value on a message.
+     */
+    @FunctionalInterface
+    interface Setter<M> {
+        void apply(M message) throws JMSException;
+    }
+
+    private final List<Setter<Message>> headers = new ArrayList<>();
+    private final List<Setter<Message>> properties = new ArrayList<>();
+
+    MessageTemplate(ClientOptions senderOptions, Session session) {
+        compileHeaders(senderOptions, session);
+        compileCustomProperties(senderOptions);
+    }
+
+    /**
+     * Set the JMS (header) properties and then the custom properties on the message.
+     *
+     * @param message to set properties for
+     */
+    void apply(Message message) {
+        try {
+            for (Setter<Message> header : headers) {
+                header.apply(message);
+            }
+        } catch (JMSException e) {
+            e.printStackTrace();
+        }
+        try {
+            for (Setter<Message> property : properties) {
+                property.apply(message);
+            }
+        } catch (JMSException e) {
+            LOG.error("Unable to set message property from provided input. Exiting.");
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    private void compileHeaders(ClientOptions senderOptions, Session session) {
+        // Set message ID if provided or use default one
+        if (senderOptions.getOption(ClientOptions.MSG_ID).hasParsedValue()) {
+            final String id = senderOptions.getOption(ClientOptions.MSG_ID).getValue();
+            // producer.setDisableMessageID(true) is called elsewhere
+            if (!id.equals("noid")) {
+                headers.add(m -> m.setJMSMessageID(id));
+            }
+        }
+        // Set message Correlation ID
+        if (senderOptions.getOption(ClientOptions.MSG_CORRELATION_ID).hasParsedValue()) {
+            final String correlationId = senderOptions.getOption(ClientOptions.MSG_CORRELATION_ID).getValue();
+            headers.add(m -> m.setJMSCorrelationID(correlationId));
+        }
+        // Set message User ID
+        addStringProperty(senderOptions, ClientOptions.MSG_USER_ID, "JMSXUserID");
+        // Set message Subject
+        // FIXME? message.setJMSType(senderOptions.getOption(ClientOptions.MSG_SUBJECT).getValue());
+        addStringProperty(senderOptions, ClientOptions.MSG_SUBJECT, "JMS_AMQP_Subject");
+        // Set message reply to destination
+        if (senderOptions.getOption(ClientOptions.MSG_REPLY_TO).hasParsedValue()) {
+            String name = senderOptions.getOption(ClientOptions.MSG_REPLY_TO).getValue();
+            try {
+                final Destination destination;
+                if (name.startsWith(ClientOptionManager.QUEUE_PREFIX)) {
+                    destination = session.createQueue(name.substring(ClientOptionManager.QUEUE_PREFIX.length()));
+                } else if (name.startsWith(ClientOptionManager.TOPIC_PREFIX)) {
+                    destination = session.createTopic(name.substring(ClientOptionManager.TOPIC_PREFIX.length()));
+                } else {
+                    destination = session.createQueue(name);
+                }
+                headers.add(m -> m.setJMSReplyTo(destination));
+            } catch (JMSException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Set message type to message content type (some JMS vendors use this internally)
+        addStringProperty(senderOptions, ClientOptions.MSG_CONTENT_TYPE, "JMS_AMQP_ContentType");
+        // Set message priority (4 by default)
+        if (senderOptions.getOption(ClientOptions.MSG_PRIORITY).hasParsedValue()) {
+            final int priority = Integer.parseInt(senderOptions.getOption(ClientOptions.MSG_PRIORITY).getValue());
+            headers.add(m -> m.setJMSPriority(priority));
+        }
+
+        // Set the group the message belongs to
+        addStringProperty(senderOptions, ClientOptions.MSG_GROUP_ID, "JMSXGroupID");
+        // Set relative position of this message within its group
+        if (senderOptions.getOption(ClientOptions.MSG_GROUP_SEQ).hasParsedValue()) {
+            final int groupSeq = Integer.parseInt(senderOptions.getOption(ClientOptions.MSG_GROUP_SEQ).getValue());
+            headers.add(m -> m.setIntProperty("JMSXGroupSeq", groupSeq));
+        }
+
+        // JMS AMQP specific reply-to-group-id mapping
+        addStringProperty(senderOptions, ClientOptions.MSG_REPLY_TO_GROUP_ID, "JMS_AMQP_ReplyToGroupID");
+    }
+
+    private void addStringProperty(ClientOptions senderOptions, String option, String property) {
+        if (senderOptions.getOption(option).hasParsedValue()) {
+            final String value = senderOptions.getOption(option).getValue();
+            headers.add(m -> m.setStringProperty(property, value));
+        }
+    }
+
+    /**
+     * Compile custom property values into calls of the appropriate setXProperty(String, primitive-type).
+     */
+    private void compileCustomProperties(ClientOptions senderOptions) {
+        String globalPropertyType = null;
+        if (senderOptions.getOption(ClientOptions.PROPERTY_TYPE).hasParsedValue()) {
+            globalPropertyType = senderOptions.getOption(ClientOptions.PROPERTY_TYPE).getValue();
+        }
+        if (senderOptions.getOption(ClientOptions.MSG_PROPERTY).hasParsedValue()) {
+            List<String> customProperties = senderOptions.getOption(ClientOptions.MSG_PROPERTY).getParsedValuesList();
+            for (String property : customProperties) {
+                // Create new 'content' object for property key=value mapping. It is same as Message Content Map, so we can safely reuse
+                Content propertyContent = new Content(globalPropertyType, property, true);
+                LOG.trace("compiling property setter " + propertyContent.getType().getSimpleName() + " for " + property);
+                Setter<Message> setter = propertySetter(propertyContent.getType(), propertyContent.getKey(), propertyContent.getValue());
+                if (setter == null) {
+                    LOG.error("Unable to set message property from provided input. Exiting.");
+                    System.exit(2);
+                }
+                properties.add(setter);
+            }
+        }
+    }
+
+    private static Setter<Message> propertySetter(Class<?> type, String name, Object value) {
+        switch (type.getSimpleName()) {
+            case "Integer": {
+                final int v = (Integer) value;
+                return m -> m.setIntProperty(name, v);
+            }
+            case "Long": {
+                final long v = (Long) value;
+                return m -> m.setLongProperty(name, v);
+            }
+            case "Float": {
+                final float v = (Float) value;
+                return m -> m.setFloatProperty(name, v);
+            }
+            case "Double": {
+                final double v = (Double) value;
+                return m -> m.setDoubleProperty(name, v);
+            }
+            case "Boolean": {
+                final boolean v = (Boolean) value;
+                return m -> m.setBooleanProperty(name, v);
+            }
+            case "String": {
+                final String v = (String) value;
+                return m -> m.setStringProperty(name, v);
+            }
+            default:
+                return null;
+        }
+    }
+}
@@ -29,6 +29,8 @@ import java.io.Serializable;
 
 public class ObjectMessageProvider extends MessageProvider {
     private final Session session;
+    private boolean parsed = false;
+    private Serializable value;
 
     public ObjectMessageProvider(ClientOptions senderOptions, Session session) {
         super(senderOptions, session);
@@ -43,10 +45,13 @@ public class ObjectMessageProvider extends MessageProvider {
     @Override
     ObjectMessage createTypedMessage() throws JMSException {
         LOG.debug("Filling object data");
-        final Content content = new Content(globalContentType(), (String) messageContent(), false);
+        if (!parsed) {
+            value = (Serializable) new Content(globalContentType(), (String) messageContent(), false).getValue();
+            parsed = true;
+        }
 
         ObjectMessage objectMessage = session.createObjectMessage();
-        objectMessage.setObject((Serializable) content.getValue());
+        objectMessage.setObject(value);
         return objectMessage;
     }
 }
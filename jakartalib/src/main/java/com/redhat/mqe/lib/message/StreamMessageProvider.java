@@ -25,11 +25,13 @@ import com.redhat.mqe.lib.Content;
 import jakarta.jms.JMSException;
 import jakarta.jms.Session;
 import jakarta.jms.StreamMessage;
+import java.util.ArrayList;
 import java.util.List;
 
 public class StreamMessageProvider extends MessageProvider {
     private final ClientOptions senderOptions;
     private final Session session;
+    private List<Object> items;
 
     public StreamMessageProvider(ClientOptions senderOptions, Session session) {
         super(senderOptions, session);
@@ -44,19 +46,30 @@ public class StreamMessageProvider extends MessageProvider {
 
     @Override
     StreamMessage createTypedMessage() throws JMSException {
-        LOG.trace("set MSG_CONTENT_LIST_ITEM");
+        if (items == null) {
+            items = parseListItems();
+        }
 
         // Create "ListMessage" using StreamMessage
         StreamMessage message = session.createStreamMessage();
+        for (Object item : items) {
+            message.writeObject(item);
+        }
+        return message;
+    }
+
+    private List<Object> parseListItems() {
+        LOG.trace("set MSG_CONTENT_LIST_ITEM");
 
+        List<Object> parsed = new ArrayList<>();
         List<String> values = senderOptions.getOption(ClientOptions.MSG_CONTENT_LIST_ITEM).getParsedValuesList();
         if (isEmptyMessage(values)) {
-            return message;
+            return parsed;
         }
         for (String parsedItem : values) {
             Content content = new Content(globalContentType(), parsedItem, false);
-            message.writeObject(content.getValue());
+            parsed.add(content.getValue());
         }
-        return message;
+        return parsed;
     }
 }
@@ -21,12 +21,17 @@ package com.redhat.mqe.lib
 
 import com.redhat.mqe.lib.Main.main
 import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
 import org.mockito.BDDMockito.given
+import org.mockito.BDDMockito.willAnswer
 import org.mockito.Mock
 import org.mockito.Mockito.*
 import org.mockito.MockitoAnnotations
 import jakarta.jms.*
+import java.nio.file.Files
+import java.nio.file.Path
 
 class InteractionTest {
     @Mock
@@ -76,6 +81,85 @@ class InteractionTest {
         verify(producer, times(1)).send(message)
     }
 
+    @Test
+    fun `test run sender with parallel producers`() {
+        val args = arrayOf("sender", "--count", "5", "--producers", "2", "--producer-connections", "2")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        verify(connection, times(2)).createSession(anyBoolean(), anyInt())
+        verify(producer, times(5)).send(message)
+    }
+
+    @Test
+    fun `test run sender with async send`() {
+        willAnswer { invocation ->
+            invocation.getArgument<CompletionListener>(1).onCompletion(invocation.getArgument(0))
+        }.given(producer).send(any(Message::class.java), any(CompletionListener::class.java))
+        val args = arrayOf("sender", "--count", "3", "--max-in-flight", "2")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        verify(producer, times(3)).send(eq(message), any(CompletionListener::class.java))
+        verify(producer, never()).send(message)
+    }
+
+    @Test
+    fun `test run sender with async send prints messages once completed`() {
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val pending = mutableListOf<CompletionListener>()
+        willAnswer { invocation ->
+            pending.add(invocation.getArgument(1))
+            if (pending.size == 3) {
+                // the provider owns the messages until their sends complete
+                verify(formatter, never()).formatMessageAsDict(any(Message::class.java), anyBoolean())
+                pending.forEach { it.onCompletion(message) }
+            }
+        }.given(producer).send(any(Message::class.java), any(CompletionListener::class.java))
+        val args = arrayOf("sender", "--count", "3", "--max-in-flight", "3", "--log-msgs", "dict")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(3)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+    }
+
+    @Test
+    fun `test run sender with latency stamp`() {
+        val args = arrayOf("sender", "--count", "2", "--latency-stamp", "true")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        verify(message, times(2)).setLongProperty(eq(LatencyStamp.SEND_TIME_PROPERTY), anyLong())
+        verify(message, never()).setLongProperty(eq(LatencyStamp.INTENDED_TIME_PROPERTY), anyLong())
+    }
+
+    @Test
+    fun `test run sender with report interval prints summary`() {
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("sender", "--count", "3", "--report-interval", "60")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(1)).printStatistics(argThat { it["summary"] == true && it["count"] == 3L })
+    }
+
+    @Test
+    fun `test run sender with sampled message logging`() {
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("sender", "--count", "6", "--log-msgs", "dict", "--log-msgs-sample", "3")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(producer, times(6)).send(message)
+        verify(formatter, times(2)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+    }
+
     @Test
     fun `test run receiver no params`() {
         val args = arrayOf("receiver")
@@ -86,11 +170,251 @@ class InteractionTest {
         verify(consumer, times(2)).receive(anyLong())
     }
 
-    private fun createFakeClient(args: Array<String>): FakeClient {
+    @Test
+    fun `test run receiver with latency stats`() {
+        given(message.propertyExists(LatencyStamp.SEND_TIME_PROPERTY)).willReturn(true)
+        given(message.getLongProperty(LatencyStamp.SEND_TIME_PROPERTY)).willReturn(LatencyStamp.epochNanos())
+        val args = arrayOf("receiver", "--latency-stats", "true")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        verify(message, times(1)).getLongProperty(LatencyStamp.SEND_TIME_PROPERTY)
+        verify(message, never()).getLongProperty(LatencyStamp.INTENDED_TIME_PROPERTY)
+    }
+
+    @Test
+    fun `test run receiver with message listener stops at count`() {
+        var listener: MessageListener? = null
+        willAnswer { invocation -> listener = invocation.getArgument(0); null }
+            .given(consumer).setMessageListener(any(MessageListener::class.java))
+        willAnswer { repeat(4) { listener!!.onMessage(message) } }
+            .given(connection).start()
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--msg-listener-ena", "true", "--count", "3", "--log-msgs", "dict")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(3)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+        verify(consumer, never()).receive(anyLong())
+        verify(connection, times(1)).stop()
+    }
+
+    @Test
+    fun `test run receiver with message listener commits only the count in tx mode`() {
+        given(session.getTransacted()).willReturn(true)
+        deliverToListenerUntilClosed(10)
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--msg-listener-ena", "true", "--count", "3", "--tx-size", "2",
+            "--tx-endloop-action", "commit", "--log-msgs", "dict")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(3)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+        // one full batch and the end loop action, messages past the count are not delivered
+        verify(session, times(2)).commit()
+        verify(session, never()).rollback()
+    }
+
+    @Test
+    fun `test run receiver with message listener acknowledges only the count in client ack mode`() {
+        given(session.getAcknowledgeMode()).willReturn(Session.CLIENT_ACKNOWLEDGE)
+        deliverToListenerUntilClosed(10)
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--msg-listener-ena", "true", "--ssn-ack-mode", "client", "--count", "3",
+            "--ack-batch", "2", "--log-msgs", "dict")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(3)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+        verify(message, times(2)).acknowledge()
+        verify(session, never()).recover()
+    }
+
+    @Test
+    fun `test run receiver with message listener returns messages past the count`() {
+        given(session.getTransacted()).willReturn(true)
+        var listener: MessageListener? = null
+        willAnswer { invocation -> listener = invocation.getArgument(0); null }
+            .given(consumer).setMessageListener(any(MessageListener::class.java))
+        // another session may deliver once more before its consumer is closed
+        willAnswer { repeat(4) { listener!!.onMessage(message) } }
+            .given(connection).start()
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--msg-listener-ena", "true", "--count", "3", "--log-msgs", "dict")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(3)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+        verify(session, times(1)).rollback()
+    }
+
+    /**
+     * Deliver up to [depth] messages to the listener, as long as its consumer is open.
+     */
+    private fun deliverToListenerUntilClosed(depth: Int) {
+        var listener: MessageListener? = null
+        var closed = false
+        willAnswer { invocation -> listener = invocation.getArgument(0); null }
+            .given(consumer).setMessageListener(any(MessageListener::class.java))
+        willAnswer { closed = true; null }.given(consumer).close()
+        willAnswer {
+            var delivered = 0
+            while (!closed && delivered < depth) {
+                listener!!.onMessage(message)
+                delivered++
+            }
+        }.given(connection).start()
+    }
+
+    @Test
+    fun `test run receiver with parallel consumers stops at shared count`() {
+        given(consumer.receive(anyLong())).willReturn(message)
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--consumers", "3", "--count", "5", "--log-msgs", "dict")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(connection, times(3)).createSession(anyBoolean(), anyInt())
+        verify(consumer, times(5)).receive(anyLong())
+        verify(formatter, times(5)).formatMessageAsDict(any(Message::class.java), anyBoolean())
+        verify(formatter, times(1)).printStatistics(argThat { it["consumers"] == 3 && it["received"] == 5L })
+    }
+
+    @Test
+    fun `test run receiver acknowledges client ack mode messages in batches`() {
+        given(consumer.receive(anyLong())).willReturn(message, message, message, message, message, null)
+        given(session.getAcknowledgeMode()).willReturn(Session.CLIENT_ACKNOWLEDGE)
+        val args = arrayOf("receiver", "--ssn-ack-mode", "client", "--count", "5", "--ack-batch", "2")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        // two full batches and the remaining message at the end
+        verify(message, times(3)).acknowledge()
+    }
+
+    @Test
+    fun `test run receiver acknowledges every message in provider individual ack mode`() {
+        given(consumer.receive(anyLong())).willReturn(message, message, message, null)
+        given(connectionManagerFactory.getIndividualAcknowledgeMode()).willReturn(4)
+        val args = arrayOf("receiver", "--ssn-ack-mode", "individual", "--count", "3", "--ack-batch", "2")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        verify(connection).createSession(false, 4)
+        verify(message, times(3)).acknowledge()
+    }
+
+    @Test
+    fun `test run receiver with spinning wait strategy`() {
+        given(consumer.receiveNoWait()).willReturn(null, null, message)
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--count", "1", "--recv-wait-strategy", "spin")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(consumer, times(3)).receiveNoWait()
+        verify(consumer, never()).receive(anyLong())
+        verify(formatter, times(1)).printStatistics(argThat { it["recv-wait"] == "spin" && it["spin"] == 3L && it["spin-received"] == 1L })
+    }
+
+    @Test
+    fun `test run receiver reuses cached reply-to producer`() {
+        val replyTo = mock(Queue::class.java)
+        given(message.getJMSReplyTo()).willReturn(replyTo)
+        given(consumer.receive(anyLong())).willReturn(message, message, message, null)
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--count", "3", "--process-reply-to", "true")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(session, times(1)).createProducer(replyTo)
+        verify(producer, times(3)).send(message)
+        verify(producer, times(1)).close()
+        verify(formatter, times(1)).printStatistics(argThat { it["reply-cache-hits"] == 2L && it["reply-cache-misses"] == 1L })
+    }
+
+    @Test
+    fun `test run receiver appends message content to segment store`(@TempDir dir: Path) {
+        val textMessage = mock(TextMessage::class.java)
+        given(textMessage.text).willReturn("first", "second", "third")
+        given(consumer.receive(anyLong())).willReturn(textMessage, textMessage, textMessage, null)
+        val prefix = dir.resolve("content").toString()
+        val args = arrayOf("receiver", "--count", "3", "--msg-content-to-file", prefix, "--msg-content-store", "segments")
+        val client = createFakeClient(args, parsingClientOptionManager())
+
+        main(args, client)
+
+        assertEquals(listOf("content_index", "content_segment_0"), Files.list(dir).map { it.fileName.toString() }.sorted().toList())
+        assertEquals("second", String(SegmentedContentStore.read(prefix, 1), Charsets.UTF_8))
+        assertEquals("third", String(SegmentedContentStore.read(prefix, 2), Charsets.UTF_8))
+    }
+
+    @Test
+    fun `test run receiver reports lost duplicate and out of order messages`() {
+        given(message.getStringProperty(SequenceStamp.PRODUCER_PROPERTY)).willReturn("p")
+        given(message.propertyExists(SequenceStamp.SEQUENCE_PROPERTY)).willReturn(true)
+        given(message.getLongProperty(SequenceStamp.SEQUENCE_PROPERTY)).willReturn(0L, 3L, 3L, 1L)
+        given(consumer.receive(anyLong())).willReturn(message, message, message, message, null)
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("receiver", "--count", "4", "--seq-track", "true")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(formatter, times(1)).printStatistics(argThat {
+            it["seq-received"] == 4L && it["seq-lost"] == 1L && it["seq-gaps"] == 1L
+                && it["seq-duplicates"] == 1L && it["seq-out-of-order"] == 1L && it["seq-gap-ranges"] == listOf("p:2-2")
+        })
+    }
+
+    @Test
+    fun `test run connector opens connections in parallel`() {
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("connector", "--count", "4", "--connect-parallelism", "2")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(connection, times(4)).start()
+        verify(formatter, times(1)).printConnectorStatistics(eq(4), eq(0), eq(4), argThat { it["count"] == 4L && it["parallelism"] == 2 })
+    }
+
+    @Test
+    fun `test run connector holds connections for duration`() {
+        val formatter = mock(JmsMessageFormatter::class.java)
+        val args = arrayOf("connector", "--count", "2", "--duration", "0.2")
+        val client = createFakeClient(args, parsingClientOptionManager(), formatter)
+
+        main(args, client)
+
+        verify(connection, times(2)).setExceptionListener(any())
+        verify(formatter, times(1)).printConnectorStatistics(2, 0, 2)
+        verify(formatter, times(1)).printStatistics(argThat { it["connections"] == 2 && it["dropped"] == 0 && (it["held"] as Double) >= 0.2 })
+    }
+
+    private fun parsingClientOptionManager(): ClientOptionManager = object : ClientOptionManager() {
+        override fun getUrlProtocol(): String = "tcp"
+    }
+
+    private fun createFakeClient(
+        args: Array<String>,
+        clientOptionManager: ClientOptionManager = mock(ClientOptionManager::class.java),
+        messageFormatter: JmsMessageFormatter = mock(JmsMessageFormatter::class.java)
+    ): FakeClient {
         return DaggerFakeClient.builder()
             .connectionManagerFactory(connectionManagerFactory)
-            .messageFormatter(mock(JmsMessageFormatter::class.java))
-            .clientOptionManager(mock(ClientOptionManager::class.java))
+            .messageFormatter(messageFormatter)
+            .clientOptionManager(clientOptionManager)
             .args(args)
             .build()
     }
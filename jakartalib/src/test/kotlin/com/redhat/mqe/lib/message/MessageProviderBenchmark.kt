@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib.message
+
+import com.redhat.mqe.lib.ClientOptionManager
+import com.redhat.mqe.lib.SenderOptions
+import jakarta.jms.BytesMessage
+import jakarta.jms.MapMessage
+import jakarta.jms.Message
+import jakarta.jms.ObjectMessage
+import jakarta.jms.Session
+import jakarta.jms.StreamMessage
+import jakarta.jms.TextMessage
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty
+import java.io.File
+import java.lang.reflect.Proxy
+
+/**
+ * Measures the per-message cost of the message providers, without any JMS client library overhead.
+ *
+ * Run with `mvn test -Dtest=MessageProviderBenchmark -Dbenchmark=true`.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageProviderBenchmark {
+    private val properties = arrayOf(
+        "--msg-property", "a=~1", "--msg-property", "b=~2.5", "--msg-property", "c=~true",
+        "--msg-property", "d=text", "--msg-property", "e=~100000000000",
+        "--msg-correlation-id", "corr", "--msg-subject", "subject", "--msg-group-id", "group"
+    )
+
+    @Test
+    fun `benchmark message providers`() {
+        val binary = File.createTempFile("benchmark", ".bin")
+        binary.writeBytes(ByteArray(64 * 1024))
+        binary.deleteOnExit()
+
+        measure("empty", arrayOf())
+        measure("text", arrayOf("--msg-content", "hello world"))
+        measure("object", arrayOf("--msg-content", "42", "--content-type", "int"))
+        measure("map", (1..10).flatMap { listOf("--msg-content-map-item", "key$it=~$it") }.toTypedArray())
+        measure("list", (1..10).flatMap { listOf("--msg-content-list-item", "~$it") }.toTypedArray())
+        measure("bytes", arrayOf("--msg-content-from-file", binary.path, "--msg-content-binary", "true"))
+    }
+
+    private fun measure(name: String, content: Array<String>) {
+        val senderOptions = SenderOptions()
+        object : ClientOptionManager() {
+            override fun getUrlProtocol(): String = "tcp"
+        }.applyClientArguments(senderOptions, arrayOf(*content, *properties))
+        val provider = MessageProvider(senderOptions, fakeSession()).newInstance()
+
+        val warmup = 200_000L
+        val iterations = 1_000_000L
+        for (i in 0 until warmup) {
+            provider.provideMessage(i)
+        }
+        val start = System.nanoTime()
+        for (i in 0 until iterations) {
+            provider.provideMessage(i)
+        }
+        val elapsed = System.nanoTime() - start
+        println("BENCHMARK provider=$name ns/msg=${elapsed / iterations}")
+    }
+
+    private fun fakeSession(): Session = fake(Session::class.java) { method ->
+        when (method) {
+            "createMessage" -> fake(Message::class.java)
+            "createTextMessage" -> fake(TextMessage::class.java)
+            "createObjectMessage" -> fake(ObjectMessage::class.java)
+            "createMapMessage" -> fake(MapMessage::class.java)
+            "createStreamMessage" -> fake(StreamMessage::class.java)
+            "createBytesMessage" -> fake(BytesMessage::class.java)
+            else -> null
+        }
+    }
+
+    /**
+     * Creates a no-op implementation of a JMS interface, cheaper than a mock for tight loops.
+     */
+    private fun <T> fake(type: Class<T>, answer: (String) -> Any? = { null }): T {
+        return type.cast(Proxy.newProxyInstance(type.classLoader, arrayOf(type)) { proxy, method, args ->
+            when {
+                method.name == "hashCode" -> System.identityHashCode(proxy)
+                method.name == "equals" -> proxy === args[0]
+                method.returnType == Boolean::class.javaPrimitiveType -> false
+                method.returnType == Int::class.javaPrimitiveType -> 0
+                method.returnType == Long::class.javaPrimitiveType -> 0L
+                else -> answer(method.name)
+            }
+        })
+    }
+}
@@ -59,4 +59,24 @@ abstract class AbstractJmsMessageFormatterTest {
             }
         }.stream())
     }
+
+    @Test
+    fun `test python and json formatting of nested values`() {
+        val message = linkedMapOf<String, Any?>(
+            "address" to "queue'x\n",
+            "redelivered" to false,
+            "priority" to 4,
+            "ttl" to 3.14,
+            "content" to listOf(1, "two", null, mapOf("k'" to 'v')),
+            "properties" to linkedMapOf("a" to 1L, "b" to listOf<Any>())
+        )
+        assertThat(formatter.toPythonString(message)).isEqualTo(
+            "{'address': 'queue\\'x\\n', 'redelivered': False, 'priority': 4, 'ttl': 3.14, " +
+                "'content': [1, 'two', None, {'k\\'': 'v'}], 'properties': {'a': 1, 'b': []}}"
+        )
+        assertThat(formatter.toJsonString(message)).isEqualTo(
+            "{\"address\":\"queue'x\\n\",\"redelivered\":false,\"priority\":4,\"ttl\":3.14," +
+                "\"content\":[1,\"two\",null,{\"k'\":\"v\"}],\"properties\":{\"a\":1,\"b\":[]}}"
+        )
+    }
 }
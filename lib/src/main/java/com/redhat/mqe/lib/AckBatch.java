@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects received messages until they should be acknowledged together, which is when
+ * the batch holds the given number of messages, or when a message arrives after the first
+ * message of the batch waited for the given interval.
+ * <p>
+ * Messages are only checked against the interval as they arrive; whatever is left unacknowledged
+ * at the end is returned by {@link #drain()}.
+ * <p>
+ * Not thread-safe, every session or receiver should use its own instance.
+ *
+ * @param <T> received message or delivery type of the client
+ */
+public class AckBatch<T> {
+    private final int size;
+    private final long intervalNanos;
+    private List<T> pending = new ArrayList<>();
+    private long firstNanos;
+
+    /**
+     * @param size           acknowledge after this many messages, 0 for no limit
+     * @param intervalMillis acknowledge when the oldest message waited this long, 0 for no limit
+     */
+    public AckBatch(int size, long intervalMillis) {
+        this.size = Math.max(0, size);
+        this.intervalNanos = Math.max(0, intervalMillis) * 1_000_000L;
+    }
+
+    /**
+     * Add a received message to the batch.
+     *
+     * @param message received message
+     * @return messages to acknowledge now, oldest first, or an empty list
+     */
+    public List<T> add(T message) {
+        long now = System.nanoTime();
+        if (pending.isEmpty()) {
+            firstNanos = now;
+        }
+        pending.add(message);
+        if ((size > 0 && pending.size() >= size) || (intervalNanos > 0 && now - firstNanos >= intervalNanos)) {
+            return drain();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return messages not acknowledged yet, oldest first, and start a new batch
+     */
+    public List<T> drain() {
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> batch = pending;
+        pending = new ArrayList<>(Math.max(size, 1));
+        return batch;
+    }
+}
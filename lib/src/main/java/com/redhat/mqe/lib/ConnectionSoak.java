@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redhat.mqe.lib;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Hashtable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Soak mode of the connectors, holds opened connections for a given time and watches them.
+ * <p>
+ * JVM heap and live threads are sampled before and after the connections are opened,
+ * to tell the client side cost of a connection, and sampled again every second of the hold
+ * for the peak values. The client library reports dropped, interrupted (when it is going to reconnect)
+ * and reconnected connections through the connection* methods, which are thread-safe.
+ */
+public class ConnectionSoak {
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Set<Object> dropped = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger interrupted = new AtomicInteger();
+    private final AtomicInteger reconnected = new AtomicInteger();
+    private final long baselineHeap;
+    private final int baselineThreads;
+    private int connections;
+    private long openedHeap;
+    private int openedThreads;
+    private long maxHeap;
+    private int maxThreads;
+    private double heldSeconds;
+
+    /**
+     * Take the baseline sample, before any connection is opened.
+     */
+    public ConnectionSoak() {
+        baselineHeap = usedHeapAfterGc();
+        baselineThreads = threads.getThreadCount();
+    }
+
+    /**
+     * Take the sample after the connections were opened.
+     *
+     * @param connections number of connections successfully opened
+     */
+    public void opened(int connections) {
+        this.connections = connections;
+        openedHeap = usedHeapAfterGc();
+        openedThreads = threads.getThreadCount();
+        maxHeap = openedHeap;
+        maxThreads = openedThreads;
+    }
+
+    /**
+     * Hold the connections, sampling heap and threads every second.
+     *
+     * @param durationSeconds how long to hold the connections
+     */
+    public void hold(double durationSeconds) {
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + (long) (durationSeconds * 1e9);
+        long now;
+        while ((now = System.nanoTime()) < endNanos) {
+            Utils.sleep(Math.min(SAMPLE_INTERVAL_MILLIS, (endNanos - now) / 1_000_000 + 1));
+            maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed());
+            maxThreads = Math.max(maxThreads, threads.getThreadCount());
+        }
+        heldSeconds = (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * @param connection connection the client library gave up on, counted once
+     */
+    public void connectionDropped(Object connection) {
+        dropped.add(connection);
+    }
+
+    public void connectionInterrupted() {
+        interrupted.incrementAndGet();
+    }
+
+    public void connectionReconnected() {
+        reconnected.incrementAndGet();
+    }
+
+    public int getDropped() {
+        return dropped.size();
+    }
+
+    public Hashtable<String, Object> toStatistics() {
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("connections", connections);
+        stats.put("held", heldSeconds);
+        stats.put("dropped", dropped.size());
+        stats.put("interrupted", interrupted.get());
+        stats.put("reconnected", reconnected.get());
+        stats.put("heap-per-connection", (connections == 0) ? 0L : (openedHeap - baselineHeap) / connections);
+        stats.put("threads-per-connection", (connections == 0) ? 0.0 : (double) (openedThreads - baselineThreads) / connections);
+        stats.put("max-heap", maxHeap);
+        stats.put("max-threads", maxThreads);
+        return stats;
+    }
+
+    private long usedHeapAfterGc() {
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
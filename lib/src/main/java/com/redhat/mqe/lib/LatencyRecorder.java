@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Hashtable;
+
+/**
+ * Receiver side of the end-to-end latency measurement, see {@link LatencyStamp}.
+ * <p>
+ * Latency is the time between the send stamp and receipt of the message. With coordinated omission
+ * correction it is measured from the intended send time instead, so that the time messages
+ * spent waiting for a stalled sender is not left out of the results.
+ */
+public class LatencyRecorder {
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyRecorder.class);
+
+    private final boolean correctCoordinatedOmission;
+    private final String logFile;
+    private final long startMillis = System.currentTimeMillis();
+    private final LatencyStatistics latency = new LatencyStatistics();
+    private long unstamped;
+
+    /**
+     * @param correctCoordinatedOmission measure from the intended send time, when the sender provided one
+     * @param logFile                    file to write the HdrHistogram log into, null or empty for none
+     */
+    public LatencyRecorder(boolean correctCoordinatedOmission, String logFile) {
+        this.correctCoordinatedOmission = correctCoordinatedOmission;
+        this.logFile = logFile;
+    }
+
+    /**
+     * Record latency of a message received just now.
+     *
+     * @param sendNanos     send stamp of the message, null if the message was not stamped
+     * @param intendedNanos intended send time of the message, null if the sender was not rate limited
+     */
+    public void record(Long sendNanos, Long intendedNanos) {
+        long receiveNanos = LatencyStamp.epochNanos();
+        if (sendNanos == null) {
+            unstamped++;
+            return;
+        }
+        long start = (correctCoordinatedOmission && intendedNanos != null) ? Math.min(sendNanos, intendedNanos) : sendNanos;
+        latency.recordNanos(receiveNanos - start);
+    }
+
+    /**
+     * Merge values recorded by another recorder, e.g. of a parallel consumer.
+     */
+    public void add(LatencyRecorder other) {
+        latency.add(other.latency);
+        unstamped += other.unstamped;
+    }
+
+    public LatencyStatistics getLatency() {
+        return latency;
+    }
+
+    /**
+     * Print the latency percentiles as a STATS line and write the histogram log, if requested.
+     *
+     * @param formatter formatter of the client
+     */
+    public void report(MessageFormatter formatter) {
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("latency", latency.toStatistics());
+        stats.put("corrected", correctCoordinatedOmission);
+        if (unstamped > 0) {
+            stats.put("unstamped", unstamped);
+        }
+        formatter.printStatistics(stats);
+        if (logFile != null && !logFile.isEmpty()) {
+            writeLog();
+        }
+    }
+
+    private void writeLog() {
+        Histogram histogram = latency.getHistogram().copy();
+        histogram.setStartTimeStamp(startMillis);
+        histogram.setEndTimeStamp(System.currentTimeMillis());
+        try (PrintStream out = new PrintStream(logFile)) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputComment("end-to-end latency in nanoseconds" + (correctCoordinatedOmission ? ", corrected for coordinated omission" : ""));
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputLegend();
+            writer.outputIntervalHistogram(histogram);
+        } catch (FileNotFoundException e) {
+            LOG.error("Unable to write latency histogram log into {}: {}", logFile, e.getMessage());
+        }
+    }
+}
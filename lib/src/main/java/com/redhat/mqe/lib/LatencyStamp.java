@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Send timestamps for end-to-end latency measurement.
+ * <p>
+ * Sender stamps every message with a sequence number, the wall-clock time of the send
+ * and the time the send was scheduled for by the rate limiter (intended time).
+ * Protocols with application properties carry the stamp in the properties below,
+ * MQTT 3 has none, so the stamp is prepended to the payload as a single text line.
+ * Times are nanoseconds since epoch, sender and receiver clocks have to be synchronized.
+ */
+public class LatencyStamp {
+    public static final String SEQUENCE_PROPERTY = "cli_java_seq";
+    public static final String SEND_TIME_PROPERTY = "cli_java_send_ns";
+    public static final String INTENDED_TIME_PROPERTY = "cli_java_intended_ns";
+
+    private static final byte[] PAYLOAD_MAGIC = "CLIJSTAMP ".getBytes(StandardCharsets.US_ASCII);
+
+    private LatencyStamp() {
+    }
+
+    /**
+     * @return current wall-clock time in nanoseconds since epoch (with the best precision the JVM offers)
+     */
+    public static long epochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * Convert a System.nanoTime() value, e.g. returned by RateLimiter.await(), to nanoseconds since epoch.
+     */
+    public static long toEpochNanos(long nanoTime) {
+        return epochNanos() - (System.nanoTime() - nanoTime);
+    }
+
+    /**
+     * Prepend the stamp to message payload.
+     *
+     * @return new payload starting with the stamp line
+     */
+    public static byte[] stampPayload(byte[] payload, long sequence, long sendNanos, long intendedNanos) {
+        byte[] stamp = (sequence + " " + sendNanos + " " + intendedNanos + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] stamped = new byte[PAYLOAD_MAGIC.length + stamp.length + payload.length];
+        System.arraycopy(PAYLOAD_MAGIC, 0, stamped, 0, PAYLOAD_MAGIC.length);
+        System.arraycopy(stamp, 0, stamped, PAYLOAD_MAGIC.length, stamp.length);
+        System.arraycopy(payload, 0, stamped, PAYLOAD_MAGIC.length + stamp.length, payload.length);
+        return stamped;
+    }
+
+    /**
+     * @return {sequence, sendNanos, intendedNanos} from payload stamped by stampPayload, or null if there is no stamp
+     */
+    public static long[] readPayloadStamp(byte[] payload) {
+        int end = stampEnd(payload, PAYLOAD_MAGIC);
+        if (end < 0) {
+            return null;
+        }
+        String[] fields = new String(payload, PAYLOAD_MAGIC.length, end - PAYLOAD_MAGIC.length, StandardCharsets.US_ASCII).split(" ");
+        if (fields.length != 3) {
+            return null;
+        }
+        try {
+            return new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return payload without the stamp line, or the original payload if there is no stamp
+     */
+    public static byte[] stripPayloadStamp(byte[] payload) {
+        int end = stampEnd(payload, PAYLOAD_MAGIC);
+        if (end < 0) {
+            return payload;
+        }
+        return Arrays.copyOfRange(payload, end + 1, payload.length);
+    }
+
+    /**
+     * @return index of the newline ending the stamp line starting with magic, or -1 if there is no such line
+     */
+    static int stampEnd(byte[] payload, byte[] magic) {
+        if (payload == null || payload.length < magic.length) {
+            return -1;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (payload[i] != magic[i]) {
+                return -1;
+            }
+        }
+        for (int i = magic.length; i < payload.length; i++) {
+            if (payload[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Hashtable;
+
+/**
+ * Thread-safe latency histogram. Values are recorded in nanoseconds
+ * and reported in milliseconds.
+ */
+public class LatencyStatistics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Histogram histogram = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+    /**
+     * Record single latency value.
+     *
+     * @param nanos latency in nanoseconds, negative values (clock skew) are recorded as 0
+     */
+    public void recordNanos(long nanos) {
+        histogram.recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * Add all values recorded by other statistics to this one.
+     *
+     * @param other statistics to merge into this one
+     */
+    public void add(LatencyStatistics other) {
+        histogram.add(other.histogram);
+    }
+
+    public long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return count and percentiles of recorded values, suitable for MessageFormatter.printStatistics
+     */
+    public Hashtable<String, Object> toStatistics() {
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("count", histogram.getTotalCount());
+        stats.put("p50", toMillis(histogram.getValueAtPercentile(50)));
+        stats.put("p90", toMillis(histogram.getValueAtPercentile(90)));
+        stats.put("p99", toMillis(histogram.getValueAtPercentile(99)));
+        stats.put("p99.9", toMillis(histogram.getValueAtPercentile(99.9)));
+        stats.put("max", toMillis(histogram.getMaxValue()));
+        return stats;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
@@ -19,11 +19,13 @@
 
 package com.redhat.mqe.lib;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -41,15 +43,34 @@ import java.util.UUID;
  */
 public abstract class MessageFormatter {
     static final Logger LOG = LoggerFactory.getLogger(MessageFormatter.class);
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
     private final ObjectMapper json = new ObjectMapper();
+    private volatile MessageOutput output;
+
+    /**
+     * Print messages and statistics through a {@link MessageOutput} from now on,
+     * so that the calling thread does not wait for the formatting and writing to stdout.
+     */
+    public void startAsyncOutput() {
+        if (output == null) {
+            output = new MessageOutput(System.out, MessageOutput.DEFAULT_CAPACITY);
+        }
+    }
+
+    /**
+     * Write out everything printed so far and return to synchronous printing.
+     */
+    public void stopAsyncOutput() {
+        MessageOutput messageOutput = output;
+        if (messageOutput != null) {
+            messageOutput.close();
+            output = null;
+        }
+    }
 
     protected StringBuilder formatBool(Boolean in_data) {
         StringBuilder int_res = new StringBuilder();
-        if (in_data) {
-            int_res.append("True");
-        } else {
-            int_res.append("False");
-        }
+        appendBool(int_res, in_data);
         return int_res;
     }
 
@@ -59,11 +80,7 @@ public abstract class MessageFormatter {
 
     protected StringBuilder formatString(String in_data) {
         StringBuilder int_res = new StringBuilder();
-        if (in_data == null) {
-            int_res.append("None");
-        } else {
-            int_res.append("'").append(quoteStringEscape(in_data)).append("'");
-        }
+        appendString(int_res, in_data);
         return int_res;
     }
 
@@ -83,13 +100,7 @@ public abstract class MessageFormatter {
 
     protected StringBuilder formatNumber(Number number) {
         StringBuilder builder = new StringBuilder();
-        if (number instanceof Byte || number instanceof Short || number instanceof Integer || number instanceof Long) {
-            builder.append(formatLong(number.longValue()));
-        } else if (number instanceof Float || number instanceof Double) {
-            builder.append(formatDouble(number.doubleValue()));
-        } else { // can be e.g. org.apache.qpid.proton.amqp;UnsignedInteger
-            builder.append(number); // toString{} formats UnsignedIntegers just fine
-        }
+        appendNumber(builder, number);
         return builder;
     }
 
@@ -108,44 +119,17 @@ public abstract class MessageFormatter {
     }
 
     protected StringBuilder formatDouble(double in_data) {
-        // NOTE We print everything as float because of unnecessary long double output
-        // 3.14 -> 3.140000000908..
         StringBuilder int_res = new StringBuilder();
-//    int_res.append(String.format("%f", in_data));
-        int_res.append(((Double) in_data).floatValue());
+        appendDouble(int_res, in_data);
         return int_res;
     }
 
     /**
     Formats object as Python
      */
-    @SuppressWarnings("unchecked")
     protected StringBuilder formatObject(Object in_data) {
         StringBuilder int_res = new StringBuilder();
-        if (in_data == null) {
-            int_res.append("None");
-        } else if (in_data instanceof Boolean) {
-            int_res.append(formatBool((Boolean) in_data));
-        } else if (in_data instanceof Number) {
-            int_res.append(formatNumber((Number) in_data));
-        } else if (in_data instanceof Character) {
-            int_res.append(formatCharacter((Character) in_data));
-        } else if (in_data instanceof String) {
-            int_res.append(formatString((String) in_data));
-        } else if (in_data instanceof List) {
-            List<Object> in_data_list = (List<Object>) in_data;
-            int_res.append(formatList(in_data_list));
-        } else if (in_data instanceof Map) {
-            Map<String, Object> in_data_map = (Map<String, Object>) in_data;
-            int_res.append(formatMap(in_data_map));
-        } else if (in_data instanceof UUID) {
-            int_res.append(formatString(in_data.toString()));
-        } else if (in_data instanceof byte[]) {
-            String value = new String((byte[]) in_data, StandardCharsets.UTF_8);
-            int_res.append(formatString(value));
-        } else {
-            handleUnsupportedObjectMessagePayloadType(int_res, in_data);
-        }
+        appendObject(int_res, in_data);
         return int_res;
     }
 
@@ -156,87 +140,218 @@ public abstract class MessageFormatter {
 
     protected StringBuilder formatList(List<Object> objectsList) {
         StringBuilder listData = new StringBuilder();
-        String delimiter = "";
-        listData.append('[');
-        for (Object o : objectsList) {
-            listData.append(delimiter).append(formatObject(o));
-            delimiter = ", ";
-        }
-        listData.append(']');
+        appendList(listData, objectsList);
         return listData;
     }
 
 
     protected StringBuilder formatMap(Map<String, Object> map) {
         StringBuilder mapData = new StringBuilder();
-        mapData.append('{');
-        String delimiter = "";
-        for (String key : map.keySet()) {
-            mapData.append(delimiter).append(formatString(key)).append(": ").append(formatObject(map.get(key)));
-            delimiter = ", ";
-        }
-        mapData.append('}');
+        appendMap(mapData, map);
         return mapData;
-
     }
 
     /* ------ Support formatting functions ----- */
     protected StringBuilder quoteStringEscape(String a) {
         StringBuilder builder = new StringBuilder();
-        for (char c : a.toCharArray()) {
-            if (c == '\'') {
-                builder.append("\\'");
-            } else if (c == '\0') {
-                builder.append("\\0");
-            } else if (c == '\n') {
-                builder.append("\\n");
-            } else if (c == '\r') {
-                builder.append("\\r");
-            } else {
-                builder.append(c);
+        appendEscaped(builder, a);
+        return builder;
+    }
+
+    /* ------ Streaming Python formatting, appends straight into the output buffer ----- */
+
+    protected void appendBool(StringBuilder out, Boolean in_data) {
+        out.append(in_data ? "True" : "False");
+    }
+
+    protected void appendString(StringBuilder out, String in_data) {
+        if (in_data == null) {
+            out.append("None");
+        } else {
+            out.append('\'');
+            appendEscaped(out, in_data);
+            out.append('\'');
+        }
+    }
+
+    protected void appendNumber(StringBuilder out, Number number) {
+        if (number instanceof Byte || number instanceof Short || number instanceof Integer || number instanceof Long) {
+            out.append(number.longValue());
+        } else if (number instanceof Float || number instanceof Double) {
+            appendDouble(out, number.doubleValue());
+        } else { // can be e.g. org.apache.qpid.proton.amqp;UnsignedInteger
+            out.append(number); // toString{} formats UnsignedIntegers just fine
+        }
+    }
+
+    protected void appendDouble(StringBuilder out, double in_data) {
+        // NOTE We print everything as float because of unnecessary long double output
+        // 3.14 -> 3.140000000908..
+        out.append((float) in_data);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void appendObject(StringBuilder out, Object in_data) {
+        if (in_data == null) {
+            out.append("None");
+        } else if (in_data instanceof Boolean) {
+            appendBool(out, (Boolean) in_data);
+        } else if (in_data instanceof Number) {
+            appendNumber(out, (Number) in_data);
+        } else if (in_data instanceof Character) {
+            out.append('\'');
+            appendEscaped(out, (Character) in_data);
+            out.append('\'');
+        } else if (in_data instanceof String) {
+            appendString(out, (String) in_data);
+        } else if (in_data instanceof List) {
+            appendList(out, (List<Object>) in_data);
+        } else if (in_data instanceof Map) {
+            appendMap(out, (Map<String, Object>) in_data);
+        } else if (in_data instanceof UUID) {
+            appendString(out, in_data.toString());
+        } else if (in_data instanceof byte[]) {
+            appendString(out, new String((byte[]) in_data, StandardCharsets.UTF_8));
+        } else {
+            handleUnsupportedObjectMessagePayloadType(out, in_data);
+        }
+    }
+
+    protected void appendList(StringBuilder out, List<Object> objectsList) {
+        out.append('[');
+        boolean first = true;
+        for (Object o : objectsList) {
+            if (!first) {
+                out.append(", ");
             }
+            first = false;
+            appendObject(out, o);
         }
-        return builder;
+        out.append(']');
     }
 
-    public void printMessageAsPython(Map<String, Object> format) {
-        StringBuilder msgString = new StringBuilder();
-        msgString.append("{");
+    protected void appendMap(StringBuilder out, Map<String, Object> map) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (!first) {
+                out.append(", ");
+            }
+            first = false;
+            appendString(out, entry.getKey());
+            out.append(": ");
+            appendObject(out, entry.getValue());
+        }
+        out.append('}');
+    }
 
+    protected void appendEscaped(StringBuilder out, String a) {
+        for (int i = 0; i < a.length(); i++) {
+            appendEscaped(out, a.charAt(i));
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, char c) {
+        if (c == '\'') {
+            out.append("\\'");
+        } else if (c == '\0') {
+            out.append("\\0");
+        } else if (c == '\n') {
+            out.append("\\n");
+        } else if (c == '\r') {
+            out.append("\\r");
+        } else {
+            out.append(c);
+        }
+    }
+
+    /**
+     * Append message as a Python dict. Top level keys are not escaped, they are always plain identifiers.
+     */
+    protected void appendPython(StringBuilder out, Map<String, Object> format) {
+        out.append('{');
         boolean first = true;
         for (Map.Entry<String, Object> entry : format.entrySet()) {
             if (!first) {
-                msgString.append(", ");
-            } else {
-                first = false;
+                out.append(", ");
             }
-            msgString.append("'");
-            msgString.append(entry.getKey());
-            msgString.append("': ");
-            msgString.append(formatObject(entry.getValue()));
+            first = false;
+            out.append('\'').append(entry.getKey()).append("': ");
+            appendObject(out, entry.getValue());
         }
-        msgString.append("}");
-        printMessage(msgString.toString());
+        out.append('}');
     }
 
-    public void printMessageAsJson(Map<String, Object> format) {
-        try {
-            printMessage(json.writeValueAsString(format));
-        } catch (JsonProcessingException e) {
+    /**
+     * Append message as JSON, Jackson generator writes straight into the output buffer.
+     */
+    protected void appendJson(StringBuilder out, Map<String, Object> format) {
+        try (JsonGenerator generator = json.getFactory().createGenerator(new StringBuilderWriter(out))) {
+            json.writeValue(generator, format);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    public void printMessageAsPython(Map<String, Object> format) {
+        MessageOutput messageOutput = output;
+        if (messageOutput != null) {
+            messageOutput.print(out -> appendPython(out, format));
+        } else {
+            printMessage(toPythonString(format));
+        }
+    }
+
+    protected String toPythonString(Map<String, Object> format) {
+        StringBuilder buffer = reusableBuffer();
+        appendPython(buffer, format);
+        return buffer.toString();
+    }
+
+    public void printMessageAsJson(Map<String, Object> format) {
+        MessageOutput messageOutput = output;
+        if (messageOutput != null) {
+            messageOutput.print(out -> appendJson(out, format));
+        } else {
+            printMessage(toJsonString(format));
+        }
+    }
+
+    protected String toJsonString(Map<String, Object> format) {
+        StringBuilder buffer = reusableBuffer();
+        appendJson(buffer, format);
+        return buffer.toString();
+    }
+
+    private static StringBuilder reusableBuffer() {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return buffer;
+    }
+
     public void printMessage(String message) {
-        System.out.println(message);
+        MessageOutput messageOutput = output;
+        if (messageOutput != null) {
+            messageOutput.print(message);
+        } else {
+            System.out.println(message);
+        }
     }
 
     public void printStatistics(Hashtable<String, Object> msg) {
-        System.out.println("STATS " + formatMap(msg));
+        printMessage("STATS " + formatMap(msg));
     }
 
     public void printConnectorStatistics(int connectionsOpened, int connectionsFailed, int connectionsTotal) {
-        System.out.println(connectionsOpened + " " + connectionsFailed + " " + connectionsTotal);
+        printMessage(connectionsOpened + " " + connectionsFailed + " " + connectionsTotal);
+    }
+
+    /**
+     * Print the opened/failed/total connection counts, followed by statistics of the time it took to open them.
+     */
+    public void printConnectorStatistics(int connectionsOpened, int connectionsFailed, int connectionsTotal, Hashtable<String, Object> connectStatistics) {
+        printConnectorStatistics(connectionsOpened, connectionsFailed, connectionsTotal);
+        printStatistics(connectStatistics);
     }
 
     public static String hash(Object o) {
@@ -252,4 +367,38 @@ public abstract class MessageFormatter {
         String content = o.toString();
         return new BigInteger(1, md.digest(content.getBytes())).toString(16);
     }
+
+    /**
+     * Writer appending into a StringBuilder, without the synchronization of StringWriter.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder target;
+
+        StringBuilderWriter(StringBuilder target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int c) {
+            target.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            target.append(chars, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            target.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Asynchronous output of printed messages.
+ * <p>
+ * Client threads only enqueue lines (or the deferred formatting of them) into a bounded
+ * ring buffer; a writer thread formats them straight into its output buffer and writes them out in large batches. Output is
+ * flushed whenever the buffer runs empty, so it lags behind only while the client is busy.
+ * When the buffer is full, client threads wait for the writer. Lines are written in the order
+ * they were enqueued. close() (or JVM shutdown) writes out everything enqueued before,
+ * lines printed after that are written synchronously, behind them.
+ */
+public class MessageOutput implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_CHARS = 64 * 1024;
+    private static final Line CLOSE = out -> {
+    };
+
+    private final PrintStream out;
+    private final BlockingQueue<Line> queue;
+    private final Thread writer;
+    private final Thread shutdownHook;
+    /**
+     * Makes the check of closed and the enqueueing atomic, so that no line is enqueued behind CLOSE
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    /**
+     * @param out      stream to write into
+     * @param capacity how many lines may wait for the writer
+     */
+    public MessageOutput(PrintStream out, int capacity) {
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeLoop, "message-output");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.shutdownHook = new Thread(this::closeOutput, "message-output-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Line of output, formatted by the writer thread.
+     */
+    public interface Line {
+        /**
+         * Append the line, without the line separator.
+         * Must not depend on state the client changes after the line was enqueued.
+         */
+        void appendTo(StringBuilder out);
+    }
+
+    /**
+     * Enqueue a line, formatting is deferred to the writer thread.
+     * After close, the line is formatted and written synchronously.
+     */
+    public void print(Line line) {
+        closeLock.readLock().lock();
+        try {
+            if (!closed) {
+                queue.put(line);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        awaitWriter();
+        StringBuilder text = new StringBuilder();
+        line.appendTo(text);
+        synchronized (out) {
+            out.println(text);
+        }
+    }
+
+    public void print(String line) {
+        print(out -> out.append(line));
+    }
+
+    /**
+     * Write out all the enqueued lines and stop the writer thread.
+     */
+    @Override
+    public void close() {
+        closeOutput();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down, the hook flushes the output
+        }
+    }
+
+    private synchronized void closeOutput() {
+        if (closed) {
+            return;
+        }
+        // waits for the clients blocked on a full queue, which the writer drains meanwhile
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            queue.put(CLOSE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        awaitWriter();
+        // lines left behind by an interrupted writer
+        StringBuilder text = new StringBuilder();
+        Line line;
+        while ((line = queue.poll()) != null) {
+            line.appendTo(text);
+            if (line != CLOSE) {
+                out.println(text);
+            }
+            text.setLength(0);
+        }
+        out.flush();
+    }
+
+    private void awaitWriter() {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Line> batch = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder(BATCH_CHARS);
+        try {
+            boolean closing = false;
+            while (!closing) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Line line : batch) {
+                    if (line == CLOSE) {
+                        closing = true;
+                        continue;
+                    }
+                    int lineStart = chunk.length();
+                    try {
+                        line.appendTo(chunk);
+                        chunk.append(System.lineSeparator());
+                    } catch (RuntimeException e) {
+                        chunk.setLength(lineStart);
+                        System.err.println("Unable to format message for output: " + e);
+                    }
+                    if (chunk.length() >= BATCH_CHARS) {
+                        write(chunk);
+                    }
+                }
+                batch.clear();
+                if (closing || queue.isEmpty()) {
+                    write(chunk);
+                }
+            }
+        } catch (InterruptedException e) {
+            write(chunk);
+        }
+    }
+
+    private void write(StringBuilder chunk) {
+        if (chunk.length() == 0) {
+            return;
+        }
+        synchronized (out) {
+            out.print(chunk);
+            out.flush();
+        }
+        chunk.setLength(0);
+    }
+}
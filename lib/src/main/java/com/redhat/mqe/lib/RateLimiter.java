@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import java.util.Hashtable;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces loop iterations to a fixed schedule, using System.nanoTime()
+ * and LockSupport.parkNanos() instead of coarse sleeps.
+ * <p>
+ * Iteration k is scheduled at start + k * interval. When the loop falls behind,
+ * up to burst iterations are let through immediately to catch up; anything more
+ * than that is dropped from the schedule, as in a token bucket. The lag behind
+ * the original schedule is tracked, so it can be reported afterwards.
+ * <p>
+ * Not thread-safe, every loop should use its own instance.
+ */
+public class RateLimiter {
+    private final double rate;
+    private final int burst;
+    private final long intervalNanos;
+    private final long maxCatchUpNanos;
+    private final long startNanos;
+    private long shiftNanos;
+    private long lagNanos;
+    private long maxLagNanos;
+
+    /**
+     * @param rate  iterations per second
+     * @param burst how many iterations may be sent back-to-back to catch up with the schedule
+     */
+    public RateLimiter(double rate, int burst) {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("Rate has to be a positive number, got " + rate);
+        }
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.intervalNanos = Math.max(1, Math.round(1e9 / rate));
+        this.maxCatchUpNanos = (this.burst == Integer.MAX_VALUE) ? Long.MAX_VALUE : (this.burst - 1) * intervalNanos;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Create limiter for the sender/receiver pacing options.
+     * Explicit rate takes precedence, otherwise count iterations are spread evenly over duration
+     * (what Utils.sleepUntilNextIteration used to do).
+     *
+     * @param rate            iterations per second, 0 if not set
+     * @param burst           burst size for the explicit rate
+     * @param count           number of iterations
+     * @param durationSeconds total duration of all iterations in seconds
+     * @return configured limiter, or null if no pacing was requested
+     */
+    public static RateLimiter create(double rate, int burst, long count, double durationSeconds) {
+        if (rate > 0) {
+            return new RateLimiter(rate, burst);
+        }
+        if (count > 0 && durationSeconds > 0) {
+            return new RateLimiter(count / durationSeconds, Integer.MAX_VALUE);
+        }
+        return null;
+    }
+
+    /**
+     * Park the calling thread until the time scheduled for given iteration.
+     *
+     * @param iteration iteration number, counted from the creation of this limiter
+     * @return originally intended time of the iteration, in System.nanoTime() terms
+     */
+    public long await(long iteration) {
+        final long intended = intendedNanos(iteration);
+        final long target = intended + shiftNanos;
+        long now = System.nanoTime();
+        while (now - target < 0) {
+            LockSupport.parkNanos(target - now);
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            now = System.nanoTime();
+        }
+        lagNanos = Math.max(0, now - intended);
+        maxLagNanos = Math.max(maxLagNanos, lagNanos);
+        if (now - target > maxCatchUpNanos) {
+            shiftNanos += now - target - maxCatchUpNanos;
+        }
+        return intended;
+    }
+
+    /**
+     * @param iteration iteration number, counted from the creation of this limiter
+     * @return originally intended time of the iteration, in System.nanoTime() terms
+     */
+    public long intendedNanos(long iteration) {
+        return startNanos + iteration * intervalNanos;
+    }
+
+    /**
+     * @return nanoseconds the last iteration was behind the original schedule
+     */
+    public long getLagNanos() {
+        return lagNanos;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    /**
+     * @return configured rate and lag behind schedule, suitable for MessageFormatter.printStatistics
+     */
+    public Hashtable<String, Object> toStatistics() {
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("rate", rate);
+        stats.put("burst", burst);
+        stats.put("lag", lagNanos / 1e6);
+        stats.put("max-lag", maxLagNanos / 1e6);
+        return stats;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the producers (senders) a responder replies with, keyed by the reply-to address,
+ * so that a link is not attached and detached for every reply.
+ * <p>
+ * Holds at most capacity producers and closes the least recently used one to make room;
+ * producers not used for the idle time are closed as well. Capacity 0 disables caching,
+ * every producer is then closed right after its reply.
+ * <p>
+ * Not thread-safe, every session should use its own instance.
+ *
+ * @param <K> reply-to address type
+ * @param <S> producer type
+ */
+public class ReplySenderCache<K, S> {
+    private final int capacity;
+    private final long idleNanos;
+    private final Consumer<S> closer;
+    private final LinkedHashMap<K, Entry<S>> senders = new LinkedHashMap<>(16, 0.75f, true);
+    private final LatencyStatistics replyLatency = new LatencyStatistics();
+    private long hits;
+    private long misses;
+    private long evicted;
+
+    private static class Entry<S> {
+        final S sender;
+        long lastUsedNanos;
+
+        Entry(S sender, long lastUsedNanos) {
+            this.sender = sender;
+            this.lastUsedNanos = lastUsedNanos;
+        }
+    }
+
+    /**
+     * @param capacity    maximal number of open producers kept, 0 for no caching
+     * @param idleSeconds close producers not used for this long, 0 to keep them until evicted
+     * @param closer      closes an evicted producer
+     */
+    public ReplySenderCache(int capacity, double idleSeconds, Consumer<S> closer) {
+        this.capacity = Math.max(0, capacity);
+        this.idleNanos = Math.round(Math.max(0, idleSeconds) * 1e9);
+        this.closer = closer;
+    }
+
+    /**
+     * Look up the producer for a reply-to address, and close producers idle for too long.
+     *
+     * @return cached producer, or null if the caller has to create one and {@link #put} it
+     */
+    public S get(K address) {
+        long now = System.nanoTime();
+        if (idleNanos > 0) {
+            // access order, the least recently used entries come first
+            Iterator<Entry<S>> iterator = senders.values().iterator();
+            while (iterator.hasNext()) {
+                Entry<S> entry = iterator.next();
+                if (now - entry.lastUsedNanos < idleNanos) {
+                    break;
+                }
+                iterator.remove();
+                evict(entry);
+            }
+        }
+        Entry<S> entry = senders.get(address);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.lastUsedNanos = now;
+        return entry.sender;
+    }
+
+    /**
+     * Cache a newly created producer, closing the least recently used one if the cache is full.
+     */
+    public void put(K address, S sender) {
+        if (capacity == 0) {
+            closer.accept(sender);
+            return;
+        }
+        senders.put(address, new Entry<>(sender, System.nanoTime()));
+        if (senders.size() > capacity) {
+            Iterator<Entry<S>> iterator = senders.values().iterator();
+            Entry<S> eldest = iterator.next();
+            iterator.remove();
+            evict(eldest);
+        }
+    }
+
+    private void evict(Entry<S> entry) {
+        evicted++;
+        closer.accept(entry.sender);
+    }
+
+    /**
+     * Record how long sending a reply took, including the producer lookup or creation.
+     *
+     * @param startNanos System.nanoTime() before the lookup
+     */
+    public void recordReply(long startNanos) {
+        replyLatency.recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Close all cached producers.
+     */
+    public void close() {
+        for (Map.Entry<K, Entry<S>> entry : senders.entrySet()) {
+            closer.accept(entry.getValue().sender);
+        }
+        senders.clear();
+    }
+
+    public void add(ReplySenderCache<?, ?> other) {
+        hits += other.hits;
+        misses += other.misses;
+        evicted += other.evicted;
+        replyLatency.add(other.replyLatency);
+    }
+
+    /**
+     * @return cache hits, misses, hit rate and evictions, and the reply latency percentiles
+     */
+    public Hashtable<String, Object> toStatistics() {
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("reply-cache-hits", hits);
+        stats.put("reply-cache-misses", misses);
+        stats.put("reply-cache-hit-rate", (hits + misses == 0) ? 0.0 : (double) hits / (hits + misses));
+        stats.put("reply-cache-evicted", evicted);
+        stats.put("reply-latency", replyLatency.toStatistics());
+        return stats;
+    }
+}
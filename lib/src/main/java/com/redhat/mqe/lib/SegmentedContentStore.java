@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redhat.mqe.lib;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores received message content by appending it to a few large segment files, instead of writing
+ * a file for every message. Segment files are named {@code <prefix>_segment_<n>} and each holds
+ * messages up to the segment size (a message larger than that gets a segment of its own).
+ * <p>
+ * The index file {@code <prefix>_index} has a fixed size record for every stored message:
+ * message number (int), segment (int), offset in the segment (long) and content length (int),
+ * all big endian, in the order the messages were stored.
+ * <p>
+ * Content is collected in a direct buffer and written with {@link FileChannel}, so a large number
+ * of small messages costs a write call per buffer, not per message. Nothing is forced to disk,
+ * the content is complete after {@link #close()}.
+ * <p>
+ * Thread-safe, consumers receiving in parallel share one store.
+ */
+public class SegmentedContentStore implements Closeable {
+    static final int INDEX_RECORD_SIZE = 4 + 4 + 8 + 4;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    private final String prefix;
+    private final long segmentSize;
+    private final FileChannel index;
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(INDEX_RECORD_SIZE * 4096);
+    private final ByteBuffer contentBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private FileChannel segment;
+    private int segmentNumber = -1;
+    private long segmentPosition;
+
+    /**
+     * @param prefix      path prefix of the index and segment files
+     * @param segmentSize start a new segment when the next message would not fit in this many bytes
+     */
+    public SegmentedContentStore(String prefix, long segmentSize) throws IOException {
+        this.prefix = prefix;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.index = openForWrite(indexPath(prefix));
+        nextSegment();
+    }
+
+    static Path indexPath(String prefix) {
+        return Paths.get(prefix + "_index");
+    }
+
+    static Path segmentPath(String prefix, int segment) {
+        return Paths.get(prefix + "_segment_" + segment);
+    }
+
+    private static FileChannel openForWrite(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Append content of a message.
+     *
+     * @param number  message number, used to find the content again
+     * @param content message content
+     */
+    public synchronized void append(int number, byte[] content) throws IOException {
+        if (segmentPosition > 0 && segmentPosition + content.length > segmentSize) {
+            nextSegment();
+        }
+        if (content.length > contentBuffer.remaining()) {
+            flushContent();
+        }
+        if (content.length > contentBuffer.capacity()) {
+            ByteBuffer large = ByteBuffer.wrap(content);
+            while (large.hasRemaining()) {
+                segment.write(large);
+            }
+        } else {
+            contentBuffer.put(content);
+        }
+
+        if (indexBuffer.remaining() < INDEX_RECORD_SIZE) {
+            flushIndex();
+        }
+        indexBuffer.putInt(number).putInt(segmentNumber).putLong(segmentPosition).putInt(content.length);
+        segmentPosition += content.length;
+    }
+
+    private void nextSegment() throws IOException {
+        if (segment != null) {
+            flushContent();
+            segment.close();
+        }
+        segmentNumber++;
+        segment = openForWrite(segmentPath(prefix, segmentNumber));
+        segmentPosition = 0;
+    }
+
+    private void flushContent() throws IOException {
+        contentBuffer.flip();
+        while (contentBuffer.hasRemaining()) {
+            segment.write(contentBuffer);
+        }
+        contentBuffer.clear();
+    }
+
+    private void flushIndex() throws IOException {
+        indexBuffer.flip();
+        while (indexBuffer.hasRemaining()) {
+            index.write(indexBuffer);
+        }
+        indexBuffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!index.isOpen()) {
+            return;
+        }
+        try {
+            flushContent();
+            flushIndex();
+        } finally {
+            segment.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Read content of a stored message. The record is looked up at the position of the message number
+     * first, which is where it is when the messages were stored in order, otherwise the index is searched.
+     * The index is read with positional reads at long offsets, so it may be larger than 2 GiB.
+     *
+     * @param prefix path prefix of the index and segment files
+     * @param number message number
+     * @return message content
+     * @throws NoSuchFileException when the message is not in the store
+     */
+    public static byte[] read(String prefix, int number) throws IOException {
+        try (FileChannel index = FileChannel.open(indexPath(prefix), StandardOpenOption.READ)) {
+            long count = index.size() / INDEX_RECORD_SIZE;
+            ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+            boolean found = false;
+            if (number >= 0 && number < count) {
+                readFully(index, record, (long) number * INDEX_RECORD_SIZE, "index ends before its last record");
+                found = record.getInt(0) == number;
+            }
+            if (!found) {
+                long position = findRecord(index, count, number);
+                if (position < 0) {
+                    throw new NoSuchFileException(indexPath(prefix).toString(), null, "message " + number + " is not in the store");
+                }
+                record.clear();
+                readFully(index, record, position, "index ends before its last record");
+            }
+            int segmentNumber = record.getInt(4);
+            long offset = record.getLong(8);
+            int length = record.getInt(16);
+
+            ByteBuffer content = ByteBuffer.allocate(length);
+            try (FileChannel segment = FileChannel.open(segmentPath(prefix, segmentNumber), StandardOpenOption.READ)) {
+                readFully(segment, content, offset, "segment " + segmentNumber + " ends before message " + number);
+            }
+            return content.array();
+        }
+    }
+
+    /**
+     * Search the index for the record of the message, reading many records at a time.
+     *
+     * @return position of the record in the index, -1 if it is not there
+     */
+    private static long findRecord(FileChannel index, long count, int number) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(INDEX_RECORD_SIZE * 4096);
+        for (long first = 0; first < count; first += records.capacity() / INDEX_RECORD_SIZE) {
+            int n = (int) Math.min(count - first, records.capacity() / INDEX_RECORD_SIZE);
+            records.clear().limit(n * INDEX_RECORD_SIZE);
+            readFully(index, records, first * INDEX_RECORD_SIZE, "index ends before its last record");
+            for (int i = 0; i < n; i++) {
+                if (records.getInt(i * INDEX_RECORD_SIZE) == number) {
+                    return (first + i) * INDEX_RECORD_SIZE;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fill the buffer from its position to its limit, reading the file from the given position on.
+     *
+     * @param eofMessage message of the exception thrown when the file ends too soon
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, String eofMessage) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException(eofMessage);
+            }
+        }
+    }
+
+    /**
+     * Extract content of a stored message to standard output.
+     * Usage: {@code SegmentedContentStore <prefix> <message number>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: " + SegmentedContentStore.class.getName() + " <prefix> <message number>");
+            System.exit(2);
+        }
+        System.out.write(read(args[0], Integer.parseInt(args[1])));
+        System.out.flush();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redhat.mqe.lib;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Producer stamp for loss and duplicate detection, see {@link SequenceTracker}.
+ * <p>
+ * Sender stamps every message with an id of the producer and a sequence number, counting from 0
+ * for every producer. Like {@link LatencyStamp}, the stamp goes into application properties,
+ * or, for MQTT 3, is prepended to the payload as a single text line.
+ */
+public class SequenceStamp {
+    public static final String PRODUCER_PROPERTY = "cli_java_producer";
+    public static final String SEQUENCE_PROPERTY = "cli_java_producer_seq";
+
+    private static final byte[] PAYLOAD_MAGIC = "CLIJSEQ ".getBytes(StandardCharsets.US_ASCII);
+
+    private final String producer;
+    private final long sequence;
+
+    private SequenceStamp(String producer, long sequence) {
+        this.producer = producer;
+        this.sequence = sequence;
+    }
+
+    public String getProducer() {
+        return producer;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return new id of a producer, unique across sender runs
+     */
+    public static String newProducerId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Prepend the stamp to message payload.
+     *
+     * @return new payload starting with the stamp line
+     */
+    public static byte[] stampPayload(byte[] payload, String producer, long sequence) {
+        byte[] stamp = (producer + " " + sequence + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] stamped = new byte[PAYLOAD_MAGIC.length + stamp.length + payload.length];
+        System.arraycopy(PAYLOAD_MAGIC, 0, stamped, 0, PAYLOAD_MAGIC.length);
+        System.arraycopy(stamp, 0, stamped, PAYLOAD_MAGIC.length, stamp.length);
+        System.arraycopy(payload, 0, stamped, PAYLOAD_MAGIC.length + stamp.length, payload.length);
+        return stamped;
+    }
+
+    /**
+     * @return stamp from payload stamped by stampPayload, or null if there is no stamp
+     */
+    public static SequenceStamp readPayloadStamp(byte[] payload) {
+        int end = LatencyStamp.stampEnd(payload, PAYLOAD_MAGIC);
+        if (end < 0) {
+            return null;
+        }
+        String[] fields = new String(payload, PAYLOAD_MAGIC.length, end - PAYLOAD_MAGIC.length, StandardCharsets.US_ASCII).split(" ");
+        if (fields.length != 2) {
+            return null;
+        }
+        try {
+            return new SequenceStamp(fields[0], Long.parseLong(fields[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return payload without the stamp line, or the original payload if there is no stamp
+     */
+    public static byte[] stripPayloadStamp(byte[] payload) {
+        int end = LatencyStamp.stampEnd(payload, PAYLOAD_MAGIC);
+        if (end < 0) {
+            return payload;
+        }
+        return Arrays.copyOfRange(payload, end + 1, payload.length);
+    }
+}
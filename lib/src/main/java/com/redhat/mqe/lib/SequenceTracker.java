@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redhat.mqe.lib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Receiver side of the loss and duplicate detection, see {@link SequenceStamp}.
+ * <p>
+ * For every producer, the received sequence numbers are kept as ranges of consecutive numbers,
+ * so memory depends on the number of gaps, not on the number of messages; a stream received in order
+ * is a single range. Sequence numbers start at 0, missing numbers below the highest one received
+ * are lost, a number received again is a duplicate and a number lower than the highest one received
+ * so far arrived out of order. Loss after the highest received number cannot be told.
+ * <p>
+ * When a producer has more than the given number of ranges, the two lowest ranges are joined. The numbers
+ * between them stay counted as lost. A message arriving later at or below a joined gap can no longer be told
+ * from a duplicate, it is counted as late-unknown instead of either.
+ * <p>
+ * Thread-safe, consumers receiving in parallel share one tracker.
+ */
+public class SequenceTracker {
+    public static final int DEFAULT_MAX_RANGES = 65536;
+    private static final int REPORTED_GAPS = 10;
+
+    private final int maxRanges;
+    private final Map<String, ProducerSequence> producers = new HashMap<>();
+    private long unstamped;
+
+    public SequenceTracker() {
+        this(DEFAULT_MAX_RANGES);
+    }
+
+    /**
+     * @param maxRanges ranges of received sequence numbers kept for every producer
+     */
+    public SequenceTracker(int maxRanges) {
+        this.maxRanges = Math.max(2, maxRanges);
+    }
+
+    /**
+     * Record a received message.
+     *
+     * @param producer producer id from the stamp, or null for a message without a stamp
+     * @param sequence sequence number from the stamp
+     */
+    public synchronized void record(String producer, Long sequence) {
+        if (producer == null || sequence == null) {
+            unstamped++;
+            return;
+        }
+        producers.computeIfAbsent(producer, p -> new ProducerSequence()).record(sequence);
+    }
+
+    public synchronized Hashtable<String, Object> toStatistics() {
+        long received = 0;
+        long lost = 0;
+        long gaps = 0;
+        long duplicates = 0;
+        long lateUnknown = 0;
+        long outOfOrder = 0;
+        List<String> gapRanges = new ArrayList<>();
+        for (Map.Entry<String, ProducerSequence> entry : producers.entrySet()) {
+            ProducerSequence sequence = entry.getValue();
+            received += sequence.received;
+            duplicates += sequence.duplicates;
+            lateUnknown += sequence.lateUnknown;
+            outOfOrder += sequence.outOfOrder;
+            lost += sequence.highest + 1 - (sequence.received - sequence.duplicates - sequence.lateUnknown);
+            gaps += sequence.joinedGaps;
+            long expected = 0;
+            for (Map.Entry<Long, Long> range : sequence.ranges.entrySet()) {
+                if (range.getKey() > expected) {
+                    gaps++;
+                    if (gapRanges.size() < REPORTED_GAPS) {
+                        gapRanges.add(entry.getKey() + ":" + expected + "-" + (range.getKey() - 1));
+                    }
+                }
+                expected = range.getValue() + 1;
+            }
+        }
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("seq-producers", producers.size());
+        stats.put("seq-received", received);
+        stats.put("seq-unstamped", unstamped);
+        stats.put("seq-lost", lost);
+        stats.put("seq-gaps", gaps);
+        stats.put("seq-duplicates", duplicates);
+        stats.put("seq-late-unknown", lateUnknown);
+        stats.put("seq-out-of-order", outOfOrder);
+        stats.put("seq-gap-ranges", gapRanges);
+        return stats;
+    }
+
+    private class ProducerSequence {
+        /**
+         * first sequence number of a range mapped to the last one
+         */
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+        private long highest = -1;
+        private long received;
+        private long duplicates;
+        private long lateUnknown;
+        private long outOfOrder;
+        private long joinedGaps;
+        /**
+         * highest sequence number of the joined gaps, -1 if no gaps were joined
+         */
+        private long joinedUpTo = -1;
+
+        void record(long sequence) {
+            received++;
+            Map.Entry<Long, Long> below = ranges.floorEntry(sequence);
+            if (below != null && below.getValue() >= sequence) {
+                if (sequence <= joinedUpTo) {
+                    lateUnknown++;
+                } else {
+                    duplicates++;
+                }
+                return;
+            }
+            if (sequence < highest) {
+                outOfOrder++;
+            }
+            highest = Math.max(highest, sequence);
+
+            long first = sequence;
+            long last = sequence;
+            if (below != null && below.getValue() == sequence - 1) {
+                first = below.getKey();
+            }
+            Long above = ranges.get(sequence + 1);
+            if (above != null) {
+                ranges.remove(sequence + 1);
+                last = above;
+            }
+            ranges.put(first, last);
+
+            if (ranges.size() > maxRanges) {
+                Map.Entry<Long, Long> lowest = ranges.pollFirstEntry();
+                Map.Entry<Long, Long> next = ranges.pollFirstEntry();
+                ranges.put(lowest.getKey(), next.getValue());
+                joinedUpTo = next.getKey() - 1;
+                joinedGaps++;
+            }
+        }
+    }
+}
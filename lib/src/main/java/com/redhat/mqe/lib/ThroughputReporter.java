@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.redhat.mqe.lib;
+
+import java.util.Hashtable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Periodically prints throughput statistics of a running client, and a summary when the client finishes.
+ * <p>
+ * Send and receive loops only bump the counters, which are cheap to update from many threads at once;
+ * all formatting and printing happens in a background thread. The summary is printed once,
+ * either by close() or by a shutdown hook when the JVM is terminated (e.g. SIGTERM or System.exit).
+ * The shutdown hook of {@link MessageOutput} runs concurrently with ours; a summary printed while the
+ * output is being closed, or after that, is written synchronously behind the enqueued lines.
+ */
+public class ThroughputReporter implements AutoCloseable {
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private final MessageFormatter formatter;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService executor;
+    private final Thread shutdownHook = new Thread(this::printSummary, "throughput-reporter-shutdown");
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    // only accessed from the reporting thread
+    private long lastNanos = startNanos;
+    private long lastMessages;
+    private long lastBytes;
+
+    /**
+     * @param formatter       formatter used to print the statistics
+     * @param intervalSeconds how often to print the statistics
+     */
+    public ThroughputReporter(MessageFormatter formatter, double intervalSeconds) {
+        this.formatter = formatter;
+        long intervalNanos = Math.max(1, Math.round(intervalSeconds * 1e9));
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "throughput-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::printInterval, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * @param formatter       formatter used to print the statistics
+     * @param intervalSeconds value of the report-interval option
+     * @return started reporter, or null if reporting was not requested
+     */
+    public static ThroughputReporter start(MessageFormatter formatter, double intervalSeconds) {
+        if (intervalSeconds > 0) {
+            return new ThroughputReporter(formatter, intervalSeconds);
+        }
+        return null;
+    }
+
+    /**
+     * Count sent or received message.
+     *
+     * @param size body size of the message in bytes, 0 if unknown
+     */
+    public void recordMessage(long size) {
+        messages.increment();
+        bytes.add(size);
+    }
+
+    /**
+     * Size of text body in bytes, as encoded in UTF-8, without encoding it.
+     *
+     * @param text message body, may be null
+     * @return number of bytes of the UTF-8 encoded text
+     */
+    public static long utf8Length(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        long size = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                // unpaired surrogates are encoded as '?'
+                size += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return size;
+    }
+
+    public void recordCommit() {
+        commits.increment();
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    /**
+     * Stop periodic reporting and print the summary.
+     */
+    @Override
+    public void close() {
+        printSummary();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down, the hook has printed (or is printing) the summary
+        }
+    }
+
+    private void printInterval() {
+        long now = System.nanoTime();
+        long count = messages.sum();
+        long size = bytes.sum();
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("elapsed", (now - startNanos) / 1e9);
+        stats.put("count", count);
+        stats.put("rate", perSecond(count - lastMessages, now - lastNanos));
+        stats.put("bytes-rate", perSecond(size - lastBytes, now - lastNanos));
+        stats.put("commits", commits.sum());
+        stats.put("errors", errors.sum());
+        formatter.printStatistics(stats);
+        lastNanos = now;
+        lastMessages = count;
+        lastBytes = size;
+    }
+
+    private void printSummary() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        executor.shutdownNow();
+        long elapsed = System.nanoTime() - startNanos;
+        long count = messages.sum();
+        long size = bytes.sum();
+        Hashtable<String, Object> stats = new Hashtable<>();
+        stats.put("summary", true);
+        stats.put("elapsed", elapsed / 1e9);
+        stats.put("count", count);
+        stats.put("rate", perSecond(count, elapsed));
+        stats.put("bytes", size);
+        stats.put("bytes-rate", perSecond(size, elapsed));
+        stats.put("commits", commits.sum());
+        stats.put("errors", errors.sum());
+        formatter.printStatistics(stats);
+    }
+
+    private static double perSecond(long amount, long nanos) {
+        return (nanos <= 0) ? 0 : amount * 1e9 / nanos;
+    }
+}
@@ -90,8 +90,9 @@ public class Utils {
      * @param msgCount         number of iterations
      * @param duration         total time of all iterations
      * @param nextCountIndex   next iteration index
+     * @deprecated polls in 100 ms steps, use {@link RateLimiter} instead
      */
-
+    @Deprecated
     public static void sleepUntilNextIteration(double initialTimestamp, int msgCount, double duration, int nextCountIndex) {
         if ((duration > 0) && (msgCount > 0)) {
             // initial overall duration approximation of whole loop (sender/receiver)